@@ -4,6 +4,7 @@ module org.example.demo {
     requires javafx.fxml;
     requires java.net.http;
     requires java.desktop;
+    requires jdk.management;
     requires com.fasterxml.jackson.databind;
     requires org.kordamp.ikonli.javafx;
     requires org.kordamp.ikonli.fontawesome5;
@@ -0,0 +1,163 @@
+package org.example;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The audio device, opened once and kept open across station changes.
+ *
+ * Negotiates a format the device takes natively (16-bit PCM at the first
+ * rate and channel count it accepts) instead of asking it for each
+ * station's format; streams are converted to it with {@link PcmConverter}.
+ * That avoids reopening the line between stations and works on hardware
+ * that refuses the station's own rate.
+ *
+ * Counts underruns: writes that find the device's buffer already played dry.
+ */
+public class AudioOutput {
+
+    private static final float[] CANDIDATE_RATES = {48000f, 44100f, 96000f, 32000f, 22050f};
+    private static final int[] CANDIDATE_CHANNELS = {2, 1};
+    private static final int BUFFER_MILLIS = 250;
+
+    private final SourceDataLine fixedLine;
+    private volatile SourceDataLine line;
+    private AudioFormat format;
+
+    private final AtomicLong underruns = new AtomicLong();
+    // Set once audio has been queued since the last flush, so a fresh start isn't an underrun
+    private volatile boolean primed = false;
+
+    public AudioOutput() {
+        this.fixedLine = null;
+    }
+
+    /**
+     * Plays through {@code line} instead of a line from the system mixer,
+     * e.g. a {@code SimulatedOutputLine} on machines without a sound card.
+     */
+    public AudioOutput(SourceDataLine line) {
+        this.fixedLine = line;
+    }
+
+    /**
+     * Loads the mixer providers and their native code without opening a line,
+     * so a later {@link #open()} is quick but other programs keep the device meanwhile.
+     */
+    public void preload() {
+        if (fixedLine != null) return;
+        AudioFormat first = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, CANDIDATE_RATES[0], 16,
+                CANDIDATE_CHANNELS[0], CANDIDATE_CHANNELS[0] * 2, CANDIDATE_RATES[0], false);
+        AudioSystem.isLineSupported(new DataLine.Info(SourceDataLine.class, first));
+    }
+
+    /**
+     * Opens the device if it isn't open yet and returns the negotiated format.
+     */
+    public synchronized AudioFormat open() throws LineUnavailableException {
+        if (line != null && line.isOpen()) return format;
+
+        LineUnavailableException lastError = null;
+        for (float rate : CANDIDATE_RATES) {
+            for (int channels : CANDIDATE_CHANNELS) {
+                AudioFormat candidate = new AudioFormat(
+                        AudioFormat.Encoding.PCM_SIGNED, rate, 16, channels, channels * 2, rate, false);
+                DataLine.Info info = new DataLine.Info(SourceDataLine.class, candidate);
+                if (fixedLine == null && !AudioSystem.isLineSupported(info)) continue;
+
+                try {
+                    SourceDataLine candidateLine = fixedLine != null ? fixedLine : (SourceDataLine) AudioSystem.getLine(info);
+                    int bufferBytes = (int) (rate * candidate.getFrameSize() * BUFFER_MILLIS / 1000);
+                    candidateLine.open(candidate, bufferBytes);
+                    line = candidateLine;
+                    format = candidate;
+                    return format;
+                } catch (LineUnavailableException e) {
+                    lastError = e;
+                } catch (IllegalArgumentException ignored) {
+                    // Mixer claimed support but rejected the format
+                }
+            }
+        }
+        throw lastError != null ? lastError : new LineUnavailableException("No supported output format");
+    }
+
+    public synchronized AudioFormat getFormat() {
+        return format;
+    }
+
+    public boolean isOpen() {
+        SourceDataLine l = line;
+        return l != null && l.isOpen();
+    }
+
+    /**
+     * Blocks until the device has room; returns early if {@link #flush()} is called meanwhile.
+     */
+    public void write(byte[] data, int off, int len) {
+        SourceDataLine l = line;
+        if (l == null) return;
+        if (primed && l.isActive() && l.available() >= l.getBufferSize()) {
+            underruns.incrementAndGet();
+        }
+        l.write(data, off, len);
+        primed = true;
+    }
+
+    /**
+     * Milliseconds of audio written but not played yet; 0 while closed.
+     */
+    public long bufferedMillis() {
+        SourceDataLine l = line;
+        if (l == null) return 0;
+        AudioFormat f = l.getFormat();
+        long frames = (l.getBufferSize() - l.available()) / Math.max(1, f.getFrameSize());
+        return (long) (frames * 1000 / f.getFrameRate());
+    }
+
+    /**
+     * Writes that found the device had run out of audio while playing.
+     */
+    public long getUnderruns() {
+        return underruns.get();
+    }
+
+    public void start() {
+        SourceDataLine l = line;
+        if (l != null) l.start();
+    }
+
+    public void stop() {
+        SourceDataLine l = line;
+        if (l != null) l.stop();
+    }
+
+    /**
+     * Discards queued audio and releases any writer blocked in {@link #write}.
+     */
+    public void flush() {
+        primed = false;
+        SourceDataLine l = line;
+        if (l != null) l.flush();
+    }
+
+    public void drain() {
+        SourceDataLine l = line;
+        if (l != null) l.drain();
+        primed = false;
+    }
+
+    public synchronized void close() {
+        if (line != null) {
+            try {
+                line.stop();
+                line.close();
+            } catch (Exception ignored) {}
+            line = null;
+        }
+    }
+}
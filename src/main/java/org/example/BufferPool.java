@@ -0,0 +1,75 @@
+package org.example;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared pool of equally sized byte arrays, so that many concurrent
+ * streams recycle their network and PCM buffers instead of allocating
+ * new ones for every chunk. Arrays beyond {@code maxRetained} are left
+ * to the garbage collector; the limit can follow the number of users.
+ */
+public class BufferPool {
+
+    private final int bufferSize;
+    private final ConcurrentLinkedQueue<byte[]> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger freeCount = new AtomicInteger();
+    private final AtomicLong allocated = new AtomicLong();
+    private volatile int maxRetained;
+
+    public BufferPool(int bufferSize, int maxRetained) {
+        this.bufferSize = bufferSize;
+        this.maxRetained = maxRetained;
+    }
+
+    public int bufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Changes how many free arrays are kept, dropping the surplus right away.
+     */
+    public void setMaxRetained(int maxRetained) {
+        this.maxRetained = maxRetained;
+        while (freeCount.get() > maxRetained) {
+            if (take() == null) break;
+            allocated.decrementAndGet();
+        }
+    }
+
+    public byte[] acquire() {
+        byte[] buffer = take();
+        if (buffer != null) return buffer;
+        allocated.incrementAndGet();
+        return new byte[bufferSize];
+    }
+
+    public void release(byte[] buffer) {
+        if (buffer == null || buffer.length != bufferSize) return;
+        if (freeCount.incrementAndGet() <= maxRetained) {
+            free.offer(buffer);
+        } else {
+            freeCount.decrementAndGet();
+            allocated.decrementAndGet();
+        }
+    }
+
+    /**
+     * Number of arrays from this pool still alive, in use or free.
+     * Arrays dropped beyond {@code maxRetained} no longer count.
+     */
+    public long getAllocatedCount() {
+        return allocated.get();
+    }
+
+    public int getFreeCount() {
+        return freeCount.get();
+    }
+
+    private byte[] take() {
+        byte[] buffer = free.poll();
+        if (buffer != null) freeCount.decrementAndGet();
+        return buffer;
+    }
+}
@@ -0,0 +1,64 @@
+package org.example;
+
+/**
+ * Up- and down-mixes interleaved float audio between channel counts.
+ * Mono is copied to every output channel, anything is averaged down to
+ * mono, and 5.1-style layouts (FL FR FC LFE BL BR) fold to stereo with
+ * the centre and surrounds at -3 dB.
+ */
+public final class ChannelMixer {
+
+    private static final float MINUS_3DB = 0.7071f;
+
+    private ChannelMixer() {}
+
+    public static void mix(float[] in, int frames, int inChannels, float[] out, int outChannels) {
+        if (inChannels == outChannels) {
+            System.arraycopy(in, 0, out, 0, frames * inChannels);
+        } else if (inChannels == 1) {
+            for (int f = 0; f < frames; f++) {
+                float s = in[f];
+                for (int c = 0; c < outChannels; c++) out[f * outChannels + c] = s;
+            }
+        } else if (outChannels == 1) {
+            float scale = 1f / inChannels;
+            for (int f = 0; f < frames; f++) {
+                float sum = 0f;
+                for (int c = 0; c < inChannels; c++) sum += in[f * inChannels + c];
+                out[f] = sum * scale;
+            }
+        } else if (outChannels == 2 && inChannels >= 3) {
+            foldToStereo(in, frames, inChannels, out);
+        } else {
+            // Keep the channels both sides have; repeat the last one into any extra outputs
+            for (int f = 0; f < frames; f++) {
+                for (int c = 0; c < outChannels; c++) {
+                    out[f * outChannels + c] = in[f * inChannels + Math.min(c, inChannels - 1)];
+                }
+            }
+        }
+    }
+
+    private static void foldToStereo(float[] in, int frames, int inChannels, float[] out) {
+        boolean hasCentre = inChannels >= 3;
+        boolean hasSurround = inChannels >= 6;
+        float norm = 1f / (1f + (hasCentre ? MINUS_3DB : 0f) + (hasSurround ? MINUS_3DB : 0f));
+
+        for (int f = 0; f < frames; f++) {
+            int i = f * inChannels;
+            float left = in[i];
+            float right = in[i + 1];
+            if (hasCentre) {
+                float centre = in[i + 2] * MINUS_3DB;
+                left += centre;
+                right += centre;
+            }
+            if (hasSurround) {
+                left += in[i + 4] * MINUS_3DB;
+                right += in[i + 5] * MINUS_3DB;
+            }
+            out[f * 2] = left * norm;
+            out[f * 2 + 1] = right * norm;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.example;
+
+/**
+ * Equal-power crossfade of two interleaved 16-bit little-endian PCM blocks.
+ *
+ * The outgoing signal is scaled by cos and the incoming by sin of the fade
+ * position, so the summed power of two unrelated stations stays constant
+ * instead of dipping by 3 dB halfway as a linear fade does. The gains are
+ * stepped with a rotation per frame rather than calling the trig functions
+ * for every sample, and the result is written over the outgoing block.
+ */
+public final class CrossfadeMixer {
+
+    private CrossfadeMixer() {}
+
+    /**
+     * Mixes {@code incoming} into {@code outgoing} in place.
+     *
+     * @param length     bytes to mix, a whole number of frames
+     * @param fadeFrame  frames of the fade already done before this block
+     * @param fadeFrames total length of the fade in frames
+     * @return frames of the fade done after this block; past the end the
+     *         block is the incoming signal alone
+     */
+    public static long mix(byte[] outgoing, byte[] incoming, int length, int channels,
+                           long fadeFrame, long fadeFrames) {
+        int frames = length / (2 * channels);
+        double step = Math.PI / 2 / Math.max(1, fadeFrames);
+
+        double angle = Math.min(fadeFrame, fadeFrames) * step;
+        double gainOut = Math.cos(angle);
+        double gainIn = Math.sin(angle);
+        double cosStep = Math.cos(step);
+        double sinStep = Math.sin(step);
+
+        long frame = fadeFrame;
+        for (int f = 0, b = 0; f < frames; f++, frame++) {
+            if (frame >= fadeFrames) {
+                gainOut = 0.0;
+                gainIn = 1.0;
+            }
+            for (int c = 0; c < channels; c++, b += 2) {
+                int out = (short) ((outgoing[b] & 0xFF) | (outgoing[b + 1] << 8));
+                int in = (short) ((incoming[b] & 0xFF) | (incoming[b + 1] << 8));
+                int s = (int) Math.round(out * gainOut + in * gainIn);
+                s = Math.max(-32768, Math.min(32767, s));
+                outgoing[b] = (byte) s;
+                outgoing[b + 1] = (byte) (s >> 8);
+            }
+            if (frame < fadeFrames) {
+                double nextOut = gainOut * cosStep - gainIn * sinStep;
+                gainIn = gainIn * cosStep + gainOut * sinStep;
+                gainOut = nextOut;
+            }
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,160 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decodes many stations at once without any audio output, e.g. for
+ * loudness and silence monitoring or feeding relays.
+ *
+ * Network reads run on cheap virtual threads, one per session, while all
+ * decoding shares a fixed worker pool sized to the number of cores. Input
+ * chunks and PCM buffers come from one {@link BufferPool} sized to the open
+ * sessions, so the per-session footprint stays flat no matter how long the
+ * engine runs.
+ */
+public class DecodeEngine implements AutoCloseable {
+
+    private static final int CHUNK_BYTES = 8192;
+
+    /**
+     * Receives decoded 16-bit little-endian PCM. Called on a worker thread;
+     * the buffer is reused once the call returns.
+     */
+    public interface PcmSink {
+        void onPcm(DecodeSession session, byte[] pcm, int length);
+    }
+
+    private final ExecutorService workers;
+    private final BufferPool pool;
+    private final StreamResolver resolver = new StreamResolver();
+    private final int workerCount;
+    private final Map<String, DecodeSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    public DecodeEngine() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public DecodeEngine(int workerCount) {
+        this.workerCount = Math.max(1, workerCount);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(this.workerCount, r -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            t.setName("Decode-Worker-" + threadNumber.incrementAndGet());
+            return t;
+        });
+        // Grows and shrinks with the sessions in open() and close()
+        this.pool = new BufferPool(CHUNK_BYTES, 0);
+    }
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    public BufferPool getBufferPool() {
+        return pool;
+    }
+
+    /**
+     * Starts decoding {@code url}. Pass a null sink to only meter the stream.
+     */
+    public DecodeSession open(String url, PcmSink sink) {
+        String id = "s" + nextId.incrementAndGet();
+        DecodeSession session = new DecodeSession(id, url, pool, resolver, workers, sink);
+        sessions.put(id, session);
+        resizePool();
+        session.start();
+        return session;
+    }
+
+    public void close(DecodeSession session) {
+        sessions.remove(session.getId());
+        session.close();
+        resizePool();
+    }
+
+    private void resizePool() {
+        pool.setMaxRetained(sessions.size() * DecodeSession.maxBuffers());
+    }
+
+    public List<DecodeSession> getSessions() {
+        return new ArrayList<>(sessions.values());
+    }
+
+    /**
+     * Average worker CPU used per decoding session, as a fraction of one core.
+     */
+    public double getAverageCoreLoadPerSession() {
+        double total = 0;
+        int counted = 0;
+        for (DecodeSession session : sessions.values()) {
+            long uptime = session.getUptimeMillis();
+            if (session.getState() != DecodeSession.State.DECODING || uptime <= 0) continue;
+            total += session.getCpuNanos() / (uptime * 1_000_000.0);
+            counted++;
+        }
+        return counted == 0 ? 0 : total / counted;
+    }
+
+    /**
+     * Average heap held per decoding session: queued input, PCM buffer and decoder.
+     */
+    public long getAverageMemoryPerSession() {
+        long total = 0;
+        int counted = 0;
+        for (DecodeSession session : sessions.values()) {
+            if (session.getState() != DecodeSession.State.DECODING) continue;
+            total += session.getMemoryBytes();
+            counted++;
+        }
+        return counted == 0 ? 0 : total / counted;
+    }
+
+    /**
+     * How many sessions like the current ones the worker pool could carry at
+     * full load, or the heap could hold if that runs out first.
+     */
+    public int estimateCapacity() {
+        double perSession = getAverageCoreLoadPerSession();
+        long memoryPerSession = getAverageMemoryPerSession();
+        if (perSession <= 0 || memoryPerSession <= 0) return 0;
+
+        // Heap not used by anything else, counting what the current sessions hold as available
+        Runtime runtime = Runtime.getRuntime();
+        long held = 0;
+        for (DecodeSession session : sessions.values()) {
+            held += session.getMemoryBytes();
+        }
+        long heap = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory()) + held;
+        return (int) Math.min(workerCount / perSession, heap / memoryPerSession);
+    }
+
+    @Override
+    public void close() {
+        List<DecodeSession> closing = getSessions();
+        for (DecodeSession session : closing) {
+            close(session);
+        }
+        for (DecodeSession session : closing) {
+            session.awaitFetchEnd(2000);
+        }
+        workers.shutdown();
+        try {
+            workers.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // A slice rejected during shutdown may have left its decoder open
+        for (DecodeSession session : closing) {
+            session.releaseDecoder();
+        }
+    }
+}
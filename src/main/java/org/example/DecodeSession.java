@@ -0,0 +1,491 @@
+package org.example;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One station decoded by a {@link DecodeEngine}.
+ *
+ * A fetch thread fills pooled chunks from the socket, queues each once it is
+ * full and blocks once {@value #MAX_QUEUED_CHUNKS} are waiting, which pushes
+ * backpressure back onto the TCP connection. Decoding happens in short slices on the engine's worker
+ * pool, and only while enough compressed input is queued that the decoder
+ * will rarely block a worker. CPU time and allocation of every slice are
+ * recorded so the per-stream cost can be read off {@link #getCpuNanos()}
+ * and {@link #getAllocatedBytes()}.
+ */
+public class DecodeSession {
+
+    public enum State { CONNECTING, DECODING, ENDED, FAILED, CLOSED }
+
+    // Enough compressed input that a decode slice won't run dry mid-frame
+    private static final int START_THRESHOLD = 32 * 1024;
+    private static final int LOW_WATER = 8 * 1024;
+    private static final int MAX_QUEUED_CHUNKS = 32;
+    private static final int SLICE_READS = 16;
+
+    private static final double SILENCE_DBFS = -50.0;
+
+    private static final java.lang.management.ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final String id;
+    private final String url;
+    private final BufferPool pool;
+    private final StreamResolver resolver;
+    private final Executor workers;
+    private final DecodeEngine.PcmSink sink;
+
+    private final SessionInput input = new SessionInput();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    private volatile State state = State.CONNECTING;
+    private volatile String error;
+    private volatile AudioFormat format;
+    private Thread fetchThread;
+    private volatile boolean filling = false;
+
+    // Decoder state, only touched by whichever worker runs the current slice
+    private AudioInputStream rawStream;
+    private AudioInputStream decodedStream;
+    private byte[] pcm;
+    // Heap held by the open decoder and its PCM buffer, readable from any thread
+    private volatile long decoderBytes = 0;
+
+    // Statistics; written by one thread at a time, read by anyone
+    private volatile long bytesIn = 0;
+    private volatile long pcmBytesOut = 0;
+    private volatile long cpuNanos = 0;
+    private volatile long allocatedBytes = 0;
+    private volatile long startedAt = 0;
+    private volatile double levelDbfs = -100.0;
+    private volatile long silentSinceMillis = -1;
+
+    DecodeSession(String id, String url, BufferPool pool, StreamResolver resolver, Executor workers,
+                  DecodeEngine.PcmSink sink) {
+        this.id = id;
+        this.url = url;
+        this.pool = pool;
+        this.resolver = resolver;
+        this.workers = workers;
+        this.sink = sink;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public long getPcmBytesOut() {
+        return pcmBytesOut;
+    }
+
+    /**
+     * Worker CPU time spent decoding this session (including the sink).
+     */
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    /**
+     * Heap bytes allocated by workers while decoding this session.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Compressed bytes waiting to be decoded.
+     */
+    public int getQueuedBytes() {
+        return input.queued();
+    }
+
+    /**
+     * Heap this session holds right now: queued input chunks, the chunk being
+     * filled, the PCM buffer, and the decoder as measured when it was opened.
+     */
+    public long getMemoryBytes() {
+        int chunks = input.chunkCount() + (filling ? 1 : 0);
+        return (long) chunks * pool.bufferSize() + decoderBytes;
+    }
+
+    /**
+     * Pooled buffers a session holds at most.
+     */
+    static int maxBuffers() {
+        // Queued chunks, the one being filled and the PCM buffer
+        return MAX_QUEUED_CHUNKS + 2;
+    }
+
+    /**
+     * Wall-clock milliseconds since the session started receiving data.
+     */
+    public long getUptimeMillis() {
+        return startedAt == 0 ? 0 : System.currentTimeMillis() - startedAt;
+    }
+
+    /**
+     * RMS level of the most recent decoded block, in dBFS.
+     */
+    public double getLevelDbfs() {
+        return levelDbfs;
+    }
+
+    /**
+     * How long the stream has been below the silence threshold, 0 if it isn't silent.
+     */
+    public long getSilenceMillis() {
+        long since = silentSinceMillis;
+        return since < 0 ? 0 : System.currentTimeMillis() - since;
+    }
+
+    void start() {
+        fetchThread = Thread.ofVirtual().name("Fetch-" + id).start(this::fetchLoop);
+    }
+
+    void close() {
+        if (state != State.FAILED && state != State.ENDED) state = State.CLOSED;
+        input.close();
+        if (fetchThread != null) fetchThread.interrupt();
+        schedule();
+    }
+
+    /**
+     * Waits for the fetch thread to return its chunk to the pool.
+     */
+    void awaitFetchEnd(long millis) {
+        if (fetchThread == null) return;
+        try {
+            fetchThread.join(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean isActive() {
+        return state == State.CONNECTING || state == State.DECODING;
+    }
+
+    private void fetchLoop() {
+        try {
+            try (InputStream in = resolver.open(url).stream()) {
+                startedAt = System.currentTimeMillis();
+                boolean eof = false;
+                while (isActive() && !eof) {
+                    byte[] chunk = pool.acquire();
+                    filling = true;
+                    boolean queued = false;
+                    try {
+                        // Fill the whole chunk so a queued chunk never pins 8 KB for a few bytes
+                        int n = 0;
+                        while (n < chunk.length && isActive()) {
+                            int r = in.read(chunk, n, chunk.length - n);
+                            if (r < 0) {
+                                eof = true;
+                                break;
+                            }
+                            n += r;
+                            bytesIn += r;
+                        }
+                        if (n == 0) break;
+                        queued = input.offer(chunk, n);
+                        if (!queued) break;
+                    } finally {
+                        filling = false;
+                        if (!queued) pool.release(chunk);
+                    }
+                    if (input.queued() >= START_THRESHOLD) schedule();
+                }
+            }
+        } catch (IOException e) {
+            if (isActive()) fail("Stream error: " + e.getMessage());
+        } finally {
+            input.finish();
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                workers.execute(this::decodeSlice);
+            } catch (RejectedExecutionException e) {
+                // Engine is shutting down
+                scheduled.set(false);
+            }
+        }
+    }
+
+    private void decodeSlice() {
+        long cpuBefore = THREADS.getCurrentThreadCpuTime();
+        long allocBefore = allocatedByCurrentThread();
+
+        try {
+            if (!isActive()) {
+                releaseDecoder();
+                return;
+            }
+            if (decodedStream == null) openDecoder();
+
+            for (int i = 0; i < SLICE_READS && isActive(); i++) {
+                if (input.queued() < LOW_WATER && !input.isFinished()) break;
+
+                int n = decodedStream.read(pcm, 0, pcm.length);
+                if (n < 0) {
+                    if (isActive()) state = State.ENDED;
+                    releaseDecoder();
+                    break;
+                }
+                if (n == 0) continue;
+
+                pcmBytesOut += n;
+                measureLevel(n);
+                if (sink != null) sink.onPcm(this, pcm, n);
+            }
+        } catch (UnsupportedAudioFileException e) {
+            fail("Unsupported format: " + e.getMessage());
+            releaseDecoder();
+        } catch (IOException e) {
+            if (isActive()) fail("Decode error: " + e.getMessage());
+            releaseDecoder();
+        } catch (RuntimeException e) {
+            fail("Decode error: " + e);
+            releaseDecoder();
+        } finally {
+            cpuNanos += THREADS.getCurrentThreadCpuTime() - cpuBefore;
+            allocatedBytes += allocatedByCurrentThread() - allocBefore;
+            scheduled.set(false);
+
+            // More input may have arrived, or the session was closed, while this slice ran
+            if (decodedStream != null && (input.queued() >= START_THRESHOLD || input.isFinished())) {
+                schedule();
+            }
+        }
+    }
+
+    private void openDecoder() throws IOException, UnsupportedAudioFileException {
+        pcm = pool.acquire();
+        long allocBefore = allocatedByCurrentThread();
+        rawStream = AudioSystem.getAudioInputStream(new BufferedInputStream(input, 16384));
+        AudioFormat source = rawStream.getFormat();
+        float rate = source.getSampleRate() > 0 ? source.getSampleRate() : 44100;
+        int channels = source.getChannels() > 0 ? source.getChannels() : 2;
+        AudioFormat decoded = new AudioFormat(
+                AudioFormat.Encoding.PCM_SIGNED, rate, 16, channels, channels * 2, rate, false);
+
+        decodedStream = AudioSystem.getAudioInputStream(decoded, rawStream);
+        format = decoded;
+        // What setting up the decoder allocated stands in for what it keeps
+        decoderBytes = allocatedByCurrentThread() - allocBefore + pcm.length;
+        state = State.DECODING;
+    }
+
+    // Called on a worker, or by the engine once its workers have stopped
+    void releaseDecoder() {
+        try { if (decodedStream != null) decodedStream.close(); } catch (Exception ignored) {}
+        try { if (rawStream != null) rawStream.close(); } catch (Exception ignored) {}
+        decodedStream = null;
+        rawStream = null;
+        decoderBytes = 0;
+        if (pcm != null) {
+            pool.release(pcm);
+            pcm = null;
+        }
+        input.close();
+    }
+
+    private void fail(String message) {
+        error = message;
+        state = State.FAILED;
+    }
+
+    private void measureLevel(int length) {
+        long sumSquares = 0;
+        int samples = length / 2;
+        for (int i = 0; i + 1 < length; i += 2) {
+            int sample = (short) ((pcm[i] & 0xFF) | (pcm[i + 1] << 8));
+            sumSquares += (long) sample * sample;
+        }
+        if (samples == 0) return;
+
+        double rms = Math.sqrt((double) sumSquares / samples) / 32768.0;
+        double db = rms > 0 ? 20 * Math.log10(rms) : -100.0;
+        levelDbfs = db;
+        if (db < SILENCE_DBFS) {
+            if (silentSinceMillis < 0) silentSinceMillis = System.currentTimeMillis();
+        } else {
+            silentSinceMillis = -1;
+        }
+    }
+
+    private static long allocatedByCurrentThread() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean sunThreads) {
+            return sunThreads.getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    /**
+     * Compressed input as an InputStream over a bounded queue of pooled chunks.
+     * The fetch thread blocks in {@link #offer} while the queue is full. Uses a
+     * ReentrantLock rather than monitors so blocked virtual threads don't pin a carrier.
+     */
+    private final class SessionInput extends InputStream {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+
+        private final ArrayDeque<byte[]> chunks = new ArrayDeque<>();
+        private final ArrayDeque<Integer> lengths = new ArrayDeque<>();
+        private int headOffset = 0;
+        private int queued = 0;
+        private boolean finished = false;
+        private boolean closed = false;
+
+        boolean offer(byte[] chunk, int length) {
+            lock.lock();
+            try {
+                while (chunks.size() >= MAX_QUEUED_CHUNKS && !closed) {
+                    changed.await();
+                }
+                if (closed) return false;
+                chunks.add(chunk);
+                lengths.add(length);
+                queued += length;
+                changed.signalAll();
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int queued() {
+            lock.lock();
+            try {
+                return queued;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int chunkCount() {
+            lock.lock();
+            try {
+                return chunks.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean isFinished() {
+            lock.lock();
+            try {
+                return finished || closed;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void finish() {
+            lock.lock();
+            try {
+                finished = true;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int read(byte[] dst, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            lock.lock();
+            try {
+                while (queued == 0 && !finished && !closed) {
+                    changed.await();
+                }
+                if (closed || queued == 0) return -1;
+
+                byte[] head = chunks.peek();
+                int headLength = lengths.peek();
+                int n = Math.min(len, headLength - headOffset);
+                System.arraycopy(head, headOffset, dst, off, n);
+                headOffset += n;
+                queued -= n;
+                if (headOffset == headLength) {
+                    pool.release(chunks.poll());
+                    lengths.poll();
+                    headOffset = 0;
+                }
+                changed.signalAll();
+                return n;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for stream data");
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int available() {
+            return queued();
+        }
+
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                if (closed) return;
+                closed = true;
+                for (byte[] chunk : chunks) pool.release(chunk);
+                chunks.clear();
+                lengths.clear();
+                queued = 0;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Basic HLS client that presents a live or on-demand playlist as one
+ * continuous audio stream for the Java Sound decoders.
+ *
+ * Picks the highest-bandwidth variant of a master playlist, starts a live
+ * stream a few segments behind the edge, and keeps the next segments
+ * downloading in the background so playback never waits on a segment
+ * round trip. Transport stream segments are demuxed to their audio
+ * elementary stream; packed audio segments have their ID3 timestamp tag
+ * stripped. Encrypted streams are not supported.
+ */
+public class HlsInputStream extends InputStream {
+
+    private static final int PREFETCH_SEGMENTS = 3;
+    private static final int LIVE_START_SEGMENTS = 3;
+
+    private static final class Segment {
+        final long sequence;
+        final String url;
+
+        Segment(long sequence, String url) {
+            this.sequence = sequence;
+            this.url = url;
+        }
+    }
+
+    private final String mediaPlaylistUrl;
+    private final ExecutorService downloader = Executors.newVirtualThreadPerTaskExecutor();
+    private final MpegTsDemuxer demuxer = new MpegTsDemuxer();
+
+    private final ArrayDeque<Segment> pending = new ArrayDeque<>();
+    private final ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<>();
+    private long nextSequence = -1;
+    private long targetDurationMs = 6000;
+    private long lastReload = 0;
+    private boolean endList = false;
+
+    private byte[] current = new byte[0];
+    private int currentPos = 0;
+    private String contentType;
+    private volatile boolean closed = false;
+
+    private HlsInputStream(String mediaPlaylistUrl, String playlist) throws IOException {
+        this.mediaPlaylistUrl = mediaPlaylistUrl;
+        applyPlaylist(playlist, true);
+        fillPipeline();
+    }
+
+    /**
+     * True for playlists that carry HLS tags rather than a plain list of stream URLs.
+     */
+    public static boolean isHlsPlaylist(String text) {
+        return text.contains("#EXT-X-TARGETDURATION") || text.contains("#EXT-X-STREAM-INF")
+                || text.contains("#EXT-X-MEDIA-SEQUENCE");
+    }
+
+    public static HlsInputStream open(String url) throws IOException {
+        return open(url, fetchText(url));
+    }
+
+    public static HlsInputStream open(String url, String playlist) throws IOException {
+        if (playlist.contains("#EXT-X-STREAM-INF")) {
+            url = pickVariant(url, playlist);
+            playlist = fetchText(url);
+        }
+        return new HlsInputStream(url, playlist);
+    }
+
+    /**
+     * The media playlist actually being followed, after any master playlist.
+     */
+    public String getMediaPlaylistUrl() {
+        return mediaPlaylistUrl;
+    }
+
+    /**
+     * MIME type of the audio carried in the segments, "audio/aac" or "audio/mpeg".
+     * Waits for the first segment if none has been read yet.
+     */
+    public String getContentType() throws IOException {
+        if (contentType == null && currentPos >= current.length) nextSegment();
+        return contentType != null ? contentType : "audio/mpeg";
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] dst, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        while (currentPos >= current.length) {
+            if (closed || !nextSegment()) return -1;
+        }
+        int n = Math.min(len, current.length - currentPos);
+        System.arraycopy(current, currentPos, dst, off, n);
+        currentPos += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current.length - currentPos;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Future<byte[]> future : inFlight) future.cancel(true);
+        inFlight.clear();
+        downloader.shutdownNow();
+    }
+
+    private boolean nextSegment() throws IOException {
+        while (!closed) {
+            if (pending.isEmpty() && !endList && System.currentTimeMillis() - lastReload >= targetDurationMs / 2) {
+                applyPlaylist(fetchText(mediaPlaylistUrl), false);
+            }
+            fillPipeline();
+
+            Future<byte[]> next = inFlight.poll();
+            if (next == null) {
+                if (endList) return false;
+                // Caught up with the live edge; wait for the playlist to grow
+                sleep(targetDurationMs / 2);
+                continue;
+            }
+
+            byte[] segment;
+            try {
+                segment = next.get();
+            } catch (ExecutionException e) {
+                throw new IOException("HLS segment failed: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while loading HLS segment");
+            }
+            fillPipeline();
+
+            if (MpegTsDemuxer.looksLikeTransportStream(segment)) {
+                current = demuxer.demux(segment);
+                contentType = demuxer.getContentType();
+            } else {
+                current = stripId3(segment);
+                contentType = isAdts(current) ? "audio/aac" : "audio/mpeg";
+            }
+            currentPos = 0;
+            if (current.length > 0) return true;
+        }
+        return false;
+    }
+
+    private void fillPipeline() {
+        while (inFlight.size() < PREFETCH_SEGMENTS && !pending.isEmpty()) {
+            String url = pending.poll().url;
+            inFlight.add(downloader.submit(() -> fetchBytes(url)));
+        }
+    }
+
+    private void applyPlaylist(String playlist, boolean initial) throws IOException {
+        lastReload = System.currentTimeMillis();
+        long sequence = 0;
+        ArrayDeque<Segment> segments = new ArrayDeque<>();
+
+        for (String line : playlist.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty()) continue;
+
+            if (trimmed.startsWith("#EXT-X-TARGETDURATION:")) {
+                targetDurationMs = (long) (Double.parseDouble(trimmed.substring(22).trim()) * 1000);
+            } else if (trimmed.startsWith("#EXT-X-MEDIA-SEQUENCE:")) {
+                sequence = Long.parseLong(trimmed.substring(22).trim());
+            } else if (trimmed.startsWith("#EXT-X-ENDLIST")) {
+                endList = true;
+            } else if (trimmed.startsWith("#EXT-X-KEY:") && !trimmed.toUpperCase(Locale.ROOT).contains("METHOD=NONE")) {
+                throw new IOException("Encrypted HLS streams are not supported");
+            } else if (!trimmed.startsWith("#")) {
+                segments.add(new Segment(sequence++, StreamResolver.resolveAgainst(mediaPlaylistUrl, trimmed)));
+            }
+        }
+
+        if (initial) {
+            // Live streams start a few segments back so there is something to prefetch
+            int skip = endList ? 0 : Math.max(0, segments.size() - LIVE_START_SEGMENTS);
+            for (int i = 0; i < skip; i++) segments.poll();
+            nextSequence = segments.isEmpty() ? sequence : segments.peek().sequence;
+        }
+
+        for (Segment segment : segments) {
+            if (segment.sequence >= nextSequence) {
+                pending.add(segment);
+                nextSequence = segment.sequence + 1;
+            }
+        }
+    }
+
+    private static String pickVariant(String masterUrl, String playlist) throws IOException {
+        String best = null;
+        long bestBandwidth = -1;
+        long bandwidth = -1;
+
+        for (String line : playlist.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("#EXT-X-STREAM-INF:")) {
+                bandwidth = 0;
+                for (String attribute : trimmed.substring(18).split(",")) {
+                    if (attribute.startsWith("BANDWIDTH=")) {
+                        bandwidth = Long.parseLong(attribute.substring(10).trim());
+                    }
+                }
+            } else if (bandwidth >= 0 && !trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                if (bandwidth > bestBandwidth) {
+                    bestBandwidth = bandwidth;
+                    best = trimmed;
+                }
+                bandwidth = -1;
+            }
+        }
+        if (best == null) throw new IOException("No variants in HLS master playlist " + masterUrl);
+        return StreamResolver.resolveAgainst(masterUrl, best);
+    }
+
+    // Packed audio segments start with an ID3 tag carrying the timestamp; decoders choke on it mid-stream
+    private static byte[] stripId3(byte[] segment) {
+        if (segment.length < 10 || segment[0] != 'I' || segment[1] != 'D' || segment[2] != '3') return segment;
+        int size = ((segment[6] & 0x7F) << 21) | ((segment[7] & 0x7F) << 14)
+                | ((segment[8] & 0x7F) << 7) | (segment[9] & 0x7F);
+        int start = Math.min(segment.length, 10 + size);
+        byte[] audio = new byte[segment.length - start];
+        System.arraycopy(segment, start, audio, 0, audio.length);
+        return audio;
+    }
+
+    // ADTS frames share MPEG audio's 12-bit sync but always have layer bits 00
+    private static boolean isAdts(byte[] audio) {
+        return audio.length >= 2 && (audio[0] & 0xFF) == 0xFF && (audio[1] & 0xF6) == 0xF0;
+    }
+
+    private static String fetchText(String url) throws IOException {
+        return new String(fetchBytes(url), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] fetchBytes(String url) throws IOException {
+        URLConnection conn = StreamResolver.toUrl(url).openConnection();
+        conn.setRequestProperty("User-Agent", "JavaWebRadio/2.0");
+        conn.setConnectTimeout(10_000);
+        conn.setReadTimeout(15_000);
+        try (InputStream in = conn.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(Math.max(100, millis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for HLS playlist");
+        }
+    }
+}
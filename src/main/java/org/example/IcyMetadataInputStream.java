@@ -0,0 +1,129 @@
+package org.example;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Strips ICY metadata from a Shoutcast/Icecast stream requested with
+ * {@code Icy-MetaData: 1}.
+ *
+ * The server inserts a block after every {@code icy-metaint} bytes of audio:
+ * one length byte counting 16-byte units, then text like
+ * {@code StreamTitle='Artist - Song';} padded with zeros. Only the audio is
+ * passed on; each new StreamTitle goes to the title listener.
+ */
+public class IcyMetadataInputStream extends FilterInputStream {
+
+    private static final Pattern STREAM_TITLE = Pattern.compile("StreamTitle='(.*?)';", Pattern.DOTALL);
+
+    private final int metaInterval;
+    private int untilMeta;
+    private volatile String title;
+    private volatile Consumer<String> onTitle;
+
+    /**
+     * @param metaInterval audio bytes between metadata blocks, from the {@code icy-metaint} header
+     */
+    public IcyMetadataInputStream(InputStream in, int metaInterval) {
+        super(in);
+        if (metaInterval <= 0) throw new IllegalArgumentException("Bad icy-metaint " + metaInterval);
+        this.metaInterval = metaInterval;
+        this.untilMeta = metaInterval;
+    }
+
+    /**
+     * The last StreamTitle received, or null before the first one.
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Called on the reading thread whenever the StreamTitle changes.
+     */
+    public void setOnTitle(Consumer<String> callback) {
+        this.onTitle = callback;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n;
+        while ((n = read(one, 0, 1)) == 0) {
+            // A metadata block was consumed; keep going
+        }
+        return n < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (untilMeta == 0) {
+            if (!readMetadata()) return -1;
+            untilMeta = metaInterval;
+        }
+        int n = in.read(b, off, Math.min(len, untilMeta));
+        if (n > 0) untilMeta -= n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] scratch = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int r = read(scratch, 0, (int) Math.min(scratch.length, n - skipped));
+            if (r < 0) break;
+            skipped += r;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return untilMeta == 0 ? 0 : Math.min(in.available(), untilMeta);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        // Not supported; positions would have to account for stripped blocks
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    /**
+     * @return false if the stream ended inside the block
+     */
+    private boolean readMetadata() throws IOException {
+        int units = in.read();
+        if (units < 0) return false;
+        if (units == 0) return true;
+
+        byte[] block = in.readNBytes(units * 16);
+        if (block.length < units * 16) return false;
+
+        Matcher m = STREAM_TITLE.matcher(new String(block, StandardCharsets.UTF_8));
+        if (m.find()) {
+            String next = m.group(1).trim();
+            if (!next.equals(title)) {
+                title = next;
+                Consumer<String> callback = onTitle;
+                if (callback != null) callback.accept(next);
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,13 @@
+package org.example;
+
+/**
+ * Entry point of the fat JAR. The java launcher refuses to start a main class
+ * that extends {@link javafx.application.Application} from the class path
+ * ("JavaFX runtime components are missing"), so {@code java -jar} starts here.
+ */
+public class Launcher {
+
+    public static void main(String[] args) {
+        Main.main(args);
+    }
+}
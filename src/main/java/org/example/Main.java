@@ -1,11 +1,15 @@
 package org.example;
 
+import java.util.ArrayList;
 import java.util.List;
 import javafx.application.Platform;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -25,10 +29,13 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
+import java.util.Locale;
 
 /**
  * Radio Player v2.0
@@ -41,6 +48,13 @@ import java.util.Arrays;
 public class Main extends Application {
 
     private static final String FAVORITES_FILE = "favorites.txt";
+    private static final String LAST_STATION_FILE = "last-station.txt";
+    private static final String RECORDINGS_DIR = "recordings";
+    private static final int TIMESHIFT_MINUTES = 30;
+    private static final int REWIND_SECONDS = 30;
+    private static final int CLIP_SECONDS = 300;
+    private static final int CROSSFADE_MILLIS = Integer.getInteger("radio.crossfade", 2500);
+    private static final Resampler.Quality RESAMPLER_QUALITY = resamplerQuality(System.getProperty("radio.resampler"));
 
     private final UniversalAudioPlayer player = new UniversalAudioPlayer();
     private final AudioProcessor audioProcessor = new AudioProcessor();
@@ -58,20 +72,44 @@ public class Main extends Application {
     private final GraphicsContext gc = visualizerCanvas.getGraphicsContext2D();
     private Timeline visualizerTimeline;
 
-    private final RadioBrowserAPI radioAPI = new RadioBrowserAPI();
+    private RadioBrowserAPI radioAPI;
     private final DoubleProperty sharedVolume = new SimpleDoubleProperty(50);
+    private volatile TimeshiftBuffer timeshiftBuffer;
+    private final BooleanProperty timeshiftReady = new SimpleBooleanProperty(false);
+    // Mirrors player.isPaused() for the Pause/Resume buttons on both tabs
+    private final BooleanProperty playbackPaused = new SimpleBooleanProperty(false);
+    private boolean favoritesLoaded = false;
 
     @Override
     public void start(Stage primaryStage) {
-        loadFavorites();
+        StartupTimer.mark("fx-start");
         setupClock();
 
+        // Nothing the first window needs; keep it off the FX thread
+        runInBackground("Startup-Favorites", this::loadFavorites);
+        runInBackground("Startup-Audio", () -> {
+            player.prepare();
+            StartupTimer.mark("audio-ready");
+        });
+        runInBackground("Startup-Timeshift", this::setupTimeshift);
+        runInBackground("Startup-LastStation", this::prepareLastStation);
+
         // Setup player callbacks
-        player.setOnStatusChange(status -> statusLabel.setText(status));
+        player.setOnStatusChange(status -> {
+            statusLabel.setText(status);
+            playbackPaused.set(player.isPaused());
+        });
         player.setOnError(error -> statusLabel.setText("Error: " + error));
+        player.setOnStreamTitle(title -> nowPlayingLabel.setText("Now Playing: " + player.getCurrentStationName() + " - " + title));
+        player.setOnFirstAudio(latencyMs -> {
+            StartupTimer.mark("first-audio");
+            statusLabel.setText("Playing (started in " + latencyMs + " ms)");
+        });
 
         // Connect player to audio processor for synced visualization
         player.setAudioProcessor(audioProcessor);
+        player.setCrossfadeMillis(CROSSFADE_MILLIS);
+        player.setResamplerQuality(RESAMPLER_QUALITY);
 
         // Sync volume sliders
         volumeSlider.valueProperty().bindBidirectional(sharedVolume);
@@ -81,15 +119,19 @@ public class Main extends Application {
             player.setVolume(newVal.doubleValue() / 100.0)
         );
 
-        // Tabs
+        // Tabs; the favorites tab is only built when first opened
         VBox searchTabContent = createSearchTab();
-        VBox favoritesTabContent = createFavoritesTab();
 
         TabPane tabPane = new TabPane();
         Tab searchTab = new Tab("Search", searchTabContent);
         searchTab.setClosable(false);
-        Tab favoritesTab = new Tab("Favorites", favoritesTabContent);
+        Tab favoritesTab = new Tab("Favorites");
         favoritesTab.setClosable(false);
+        favoritesTab.setOnSelectionChanged(e -> {
+            if (favoritesTab.isSelected() && favoritesTab.getContent() == null) {
+                favoritesTab.setContent(createFavoritesTab());
+            }
+        });
         tabPane.getTabs().addAll(searchTab, favoritesTab);
 
         // Bottom bar
@@ -119,6 +161,41 @@ public class Main extends Application {
         primaryStage.setScene(scene);
         primaryStage.setOnCloseRequest(e -> cleanupResources());
         primaryStage.show();
+        StartupTimer.mark("first-window");
+
+        if (Boolean.getBoolean("radio.cdsTraining")) {
+            runCdsTraining(favoritesTab);
+        }
+    }
+
+    /**
+     * Class-loading run used by the cds build profile to record an AppCDS archive:
+     * touches the lazily built parts too, then exits.
+     */
+    private void runCdsTraining(Tab favoritesTab) {
+        favoritesTab.setContent(createFavoritesTab());
+        Timeline exit = new Timeline(new KeyFrame(Duration.seconds(5), e -> {
+            cleanupResources();
+            Platform.exit();
+        }));
+        exit.play();
+    }
+
+    private static void runInBackground(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private synchronized RadioBrowserAPI radioAPI() {
+        if (radioAPI == null) {
+            // -Dradio.api=url[,url...] points search at specific servers, e.g. SimulatorMain
+            String servers = System.getProperty("radio.api");
+            radioAPI = servers != null
+                    ? new RadioBrowserAPI(Arrays.asList(servers.split(",")))
+                    : new RadioBrowserAPI();
+        }
+        return radioAPI;
     }
 
     private VBox createSearchTab() {
@@ -141,7 +218,7 @@ public class Main extends Application {
                 searchResults.clear();
                 statusLabel.setText("Searching...");
                 new Thread(() -> {
-                    List<String> results = radioAPI.fetchStations(query);
+                    List<String> results = radioAPI().fetchStations(query);
                     Platform.runLater(() -> {
                         searchResults.addAll(results);
                         statusLabel.setText("Found " + results.size() + " stations");
@@ -175,7 +252,7 @@ public class Main extends Application {
             }
         });
 
-        VBox content = new VBox(10, searchField, searchButton, searchListView, controlsBox, visualizerCanvas, nowPlayingLabel);
+        VBox content = new VBox(10, searchField, searchButton, searchListView, controlsBox, createTimeshiftControls(), visualizerCanvas, nowPlayingLabel);
         content.setPadding(new Insets(15));
         content.setAlignment(Pos.TOP_CENTER);
         return content;
@@ -217,30 +294,115 @@ public class Main extends Application {
             }
         });
 
-        VBox content = new VBox(10, searchField, favoritesListView, controlsBox, nowPlayingLabel);
+        VBox content = new VBox(10, searchField, favoritesListView, controlsBox, createTimeshiftControls(), nowPlayingLabel);
         content.setPadding(new Insets(15));
         content.setAlignment(Pos.TOP_CENTER);
         return content;
     }
 
-    private void playStation(String stationEntry) {
-        int urlStart = stationEntry.lastIndexOf(" - http");
-        if (urlStart == -1) {
-            urlStart = stationEntry.lastIndexOf(" - ");
+    private HBox createTimeshiftControls() {
+        Button pauseButton = createButtonWithIcon("Pause", FontAwesomeSolid.PAUSE, "white", 16);
+        Button rewindButton = createButtonWithIcon("-" + REWIND_SECONDS + "s", FontAwesomeSolid.BACKWARD, "white", 16);
+        Button liveButton = createButtonWithIcon("Live", FontAwesomeSolid.BROADCAST_TOWER, "white", 16);
+        Button saveClipButton = createButtonWithIcon("Save Clip", FontAwesomeSolid.SAVE, "white", 16);
+
+        pauseButton.textProperty().bind(Bindings.when(playbackPaused).then("Resume").otherwise("Pause"));
+        pauseButton.setOnAction(e -> {
+            if (player.isPaused()) {
+                player.resume();
+            } else if (player.isPlaying()) {
+                player.pause();
+            }
+            playbackPaused.set(player.isPaused());
+        });
+
+        rewindButton.setOnAction(e -> {
+            player.rewind(REWIND_SECONDS);
+            playbackPaused.set(player.isPaused());
+        });
+
+        liveButton.setOnAction(e -> {
+            player.goLive();
+            playbackPaused.set(player.isPaused());
+        });
+
+        saveClipButton.setOnAction(e -> saveClip());
+
+        // The ring file is mapped in the background at launch
+        pauseButton.disableProperty().bind(timeshiftReady.not());
+        rewindButton.disableProperty().bind(timeshiftReady.not());
+        liveButton.disableProperty().bind(timeshiftReady.not());
+        saveClipButton.disableProperty().bind(timeshiftReady.not());
+
+        HBox box = new HBox(10, pauseButton, rewindButton, liveButton, saveClipButton);
+        box.setAlignment(Pos.CENTER);
+        return box;
+    }
+
+    private void saveClip() {
+        if (!player.isPlaying()) return;
+
+        String name = player.getCurrentStationName().replaceAll("[^A-Za-z0-9._-]+", "_");
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path target = Paths.get(RECORDINGS_DIR, name + "-" + stamp + "." + clipExtension(player.getRecordedContentType()));
+
+        statusLabel.setText("Saving clip...");
+        new Thread(() -> {
+            try {
+                Files.createDirectories(target.getParent());
+                player.exportLast(CLIP_SECONDS, target);
+                Platform.runLater(() -> statusLabel.setText("Saved " + target));
+            } catch (IOException ex) {
+                Platform.runLater(() -> statusLabel.setText("Error: " + ex.getMessage()));
+            }
+        }).start();
+    }
+
+    private static Resampler.Quality resamplerQuality(String name) {
+        if (name == null) return Resampler.Quality.MEDIUM;
+        try {
+            return Resampler.Quality.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown radio.resampler " + name + ", using MEDIUM");
+            return Resampler.Quality.MEDIUM;
         }
+    }
+
+    private static String clipExtension(String contentType) {
+        if (contentType == null) return "bin";
+        if (contentType.contains("mpeg") || contentType.contains("mp3")) return "mp3";
+        if (contentType.contains("ogg")) return "ogg";
+        if (contentType.contains("flac")) return "flac";
+        if (contentType.contains("aac")) return "aac";
+        return "bin";
+    }
+
+    private void playStation(String stationEntry) {
+        int urlStart = urlStart(stationEntry);
 
         if (urlStart > 0) {
             String name = stationEntry.substring(0, urlStart).trim();
             String url = stationEntry.substring(urlStart + 3).trim();
 
             player.play(url, name);
+            playbackPaused.set(player.isPaused());
             nowPlayingLabel.setText("Now Playing: " + name);
             startVisualizer();
+            saveLastStation(stationEntry);
         }
     }
 
+    private static int urlStart(String stationEntry) {
+        int urlStart = stationEntry.lastIndexOf(" - http");
+        if (urlStart == -1) {
+            urlStart = stationEntry.lastIndexOf(" - ");
+        }
+        return urlStart;
+    }
+
     private void stopPlayback() {
         player.stop();
+        playbackPaused.set(player.isPaused());
         audioProcessor.reset();
         nowPlayingLabel.setText("Now Playing: None");
         statusLabel.setText("");
@@ -302,18 +464,47 @@ public class Main extends Application {
         clock.play();
     }
 
+    private void setupTimeshift() {
+        try {
+            Path ringFile = Files.createTempFile("radio-timeshift", ".ring");
+            ringFile.toFile().deleteOnExit();
+            timeshiftBuffer = TimeshiftBuffer.forMinutes(ringFile, TIMESHIFT_MINUTES);
+            player.setTimeshiftBuffer(timeshiftBuffer);
+            Platform.runLater(() -> timeshiftReady.set(true));
+        } catch (IOException e) {
+            System.err.println("Timeshift disabled: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs in the background at launch; hands the list to the FX thread when read.
+     */
     private void loadFavorites() {
+        List<String> loaded = new ArrayList<>();
         try {
             File file = new File(FAVORITES_FILE);
             if (file.exists() && file.length() > 0) {
-                favoriteStations.addAll(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+                loaded.addAll(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
             }
         } catch (IOException e) {
             System.err.println("Error loading favorites: " + e.getMessage());
         }
+
+        Platform.runLater(() -> {
+            // Keep anything added before the file finished loading
+            List<String> addedEarly = new ArrayList<>(favoriteStations);
+            favoriteStations.setAll(loaded);
+            for (String station : addedEarly) {
+                if (!favoriteStations.contains(station)) favoriteStations.add(station);
+            }
+            favoritesLoaded = true;
+            if (!addedEarly.isEmpty()) saveFavorites();
+        });
     }
 
     private void saveFavorites() {
+        // Writing before the file was read would drop the stored favorites
+        if (!favoritesLoaded) return;
         try {
             Files.write(Paths.get(FAVORITES_FILE), favoriteStations, StandardCharsets.UTF_8);
         } catch (IOException e) {
@@ -321,6 +512,40 @@ public class Main extends Application {
         }
     }
 
+    private void saveLastStation(String stationEntry) {
+        try {
+            Files.writeString(Paths.get(LAST_STATION_FILE), stationEntry, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.err.println("Error saving last station: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs in the background at launch. Resumes the last station when started with
+     * --resume-last, otherwise resolves it ahead of time so playing it again connects
+     * in a single request.
+     */
+    private void prepareLastStation() {
+        String entry;
+        try {
+            Path file = Paths.get(LAST_STATION_FILE);
+            if (!Files.exists(file)) return;
+            entry = Files.readString(file, StandardCharsets.UTF_8).trim();
+        } catch (IOException e) {
+            System.err.println("Error loading last station: " + e.getMessage());
+            return;
+        }
+
+        int urlStart = urlStart(entry);
+        if (urlStart <= 0) return;
+
+        if (getParameters().getRaw().contains("--resume-last")) {
+            Platform.runLater(() -> playStation(entry));
+        } else {
+            player.getStreamResolver().prefetch(entry.substring(urlStart + 3).trim());
+        }
+    }
+
     private Slider createStyledSlider() {
         Slider slider = new Slider(0, 100, 50);
         slider.setStyle("-fx-base: white; -fx-control-inner-background: white;");
@@ -335,8 +560,13 @@ public class Main extends Application {
     }
 
     private void cleanupResources() {
-        player.stop();
+        player.close();
         audioProcessor.reset();
+        if (timeshiftBuffer != null) {
+            try {
+                timeshiftBuffer.close();
+            } catch (IOException ignored) {}
+        }
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,77 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Headless multi-station monitor built on {@link DecodeEngine}.
+ * Decodes every given station at once, prints level and silence per stream,
+ * and reports what each stream costs in CPU and allocation so the number of
+ * streams a box can carry can be estimated.
+ *
+ * Usage: MonitorMain [--seconds 60] [--workers N] url [url ...]
+ */
+public class MonitorMain {
+
+    private static final int REPORT_INTERVAL_MS = 5000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = 60;
+        int workers = Runtime.getRuntime().availableProcessors();
+        List<String> urls = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--seconds") && i + 1 < args.length) {
+                seconds = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--workers") && i + 1 < args.length) {
+                workers = Integer.parseInt(args[++i]);
+            } else {
+                urls.add(args[i]);
+            }
+        }
+
+        if (urls.isEmpty()) {
+            System.err.println("Usage: MonitorMain [--seconds 60] [--workers N] url [url ...]");
+            System.exit(1);
+        }
+
+        try (DecodeEngine engine = new DecodeEngine(workers)) {
+            for (String url : urls) {
+                engine.open(url, null);
+            }
+
+            long deadline = System.currentTimeMillis() + seconds * 1000L;
+            while (System.currentTimeMillis() < deadline) {
+                Thread.sleep(Math.min(REPORT_INTERVAL_MS, Math.max(1, deadline - System.currentTimeMillis())));
+                printReport(engine);
+            }
+
+            System.out.printf("Workers: %d, average per stream: %.2f%% of a core and %d KB of heap, estimated capacity: %d streams%n",
+                    engine.getWorkerCount(), engine.getAverageCoreLoadPerSession() * 100,
+                    engine.getAverageMemoryPerSession() / 1024, engine.estimateCapacity());
+            System.out.printf("Pooled buffers alive: %d (%d KB)%n",
+                    engine.getBufferPool().getAllocatedCount(),
+                    engine.getBufferPool().getAllocatedCount() * engine.getBufferPool().bufferSize() / 1024);
+        }
+    }
+
+    private static void printReport(DecodeEngine engine) {
+        System.out.printf("%-5s %-10s %8s %8s %8s %8s %10s %8s %8s  %s%n",
+                "id", "state", "kbps", "level", "silent", "cpu%", "alloc KB/s", "queue KB", "mem KB", "url");
+        for (DecodeSession session : engine.getSessions()) {
+            double uptime = Math.max(1, session.getUptimeMillis()) / 1000.0;
+            System.out.printf("%-5s %-10s %8.0f %8.1f %7.0fs %8.2f %10.1f %8d %8d  %s%n",
+                    session.getId(),
+                    session.getState(),
+                    session.getBytesIn() * 8 / 1000.0 / uptime,
+                    session.getLevelDbfs(),
+                    session.getSilenceMillis() / 1000.0,
+                    session.getCpuNanos() / (uptime * 1e9) * 100,
+                    session.getAllocatedBytes() / 1024.0 / uptime,
+                    session.getQueuedBytes() / 1024,
+                    session.getMemoryBytes() / 1024,
+                    session.getError() != null ? session.getError() : session.getUrl());
+        }
+        System.out.println();
+    }
+}
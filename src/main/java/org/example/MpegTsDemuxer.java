@@ -0,0 +1,98 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Minimal MPEG transport stream demuxer for HLS segments. Finds the first
+ * audio elementary stream through the PAT and PMT and returns its payload
+ * with the PES headers stripped, i.e. plain ADTS AAC or MPEG audio frames.
+ * Keeps the PID mapping between calls, as segments of one stream share it.
+ */
+public class MpegTsDemuxer {
+
+    private static final int PACKET_SIZE = 188;
+    private static final int SYNC_BYTE = 0x47;
+
+    private int pmtPid = -1;
+    private int audioPid = -1;
+    private int audioStreamType = -1;
+
+    public static boolean looksLikeTransportStream(byte[] data) {
+        return data.length >= PACKET_SIZE * 2 && (data[0] & 0xFF) == SYNC_BYTE
+                && (data[PACKET_SIZE] & 0xFF) == SYNC_BYTE;
+    }
+
+    /**
+     * MIME type of the audio stream named in the PMT, or null before one was found.
+     */
+    public String getContentType() {
+        return switch (audioStreamType) {
+            case 0x0F, 0x11 -> "audio/aac";
+            case 0x03, 0x04 -> "audio/mpeg";
+            default -> null;
+        };
+    }
+
+    public byte[] demux(byte[] segment) {
+        ByteArrayOutputStream audio = new ByteArrayOutputStream(segment.length);
+
+        for (int p = 0; p + PACKET_SIZE <= segment.length; p += PACKET_SIZE) {
+            if ((segment[p] & 0xFF) != SYNC_BYTE) continue;
+
+            boolean unitStart = (segment[p + 1] & 0x40) != 0;
+            int pid = ((segment[p + 1] & 0x1F) << 8) | (segment[p + 2] & 0xFF);
+            int adaptation = (segment[p + 3] >> 4) & 0x3;
+
+            int offset = p + 4;
+            if (adaptation == 2 || adaptation == 0) continue;  // no payload
+            if (adaptation == 3) offset += 1 + (segment[offset] & 0xFF);
+            int end = p + PACKET_SIZE;
+            if (offset >= end) continue;
+
+            if (pid == 0 && unitStart) {
+                parsePat(segment, offset + 1 + (segment[offset] & 0xFF), end);
+            } else if (pid == pmtPid && unitStart) {
+                parsePmt(segment, offset + 1 + (segment[offset] & 0xFF), end);
+            } else if (pid == audioPid) {
+                if (unitStart) {
+                    // PES header: 6 fixed bytes, 3 flag bytes, then optional fields
+                    if (offset + 9 > end) continue;
+                    offset += 9 + (segment[offset + 8] & 0xFF);
+                }
+                if (offset < end) audio.write(segment, offset, end - offset);
+            }
+        }
+        return audio.toByteArray();
+    }
+
+    private void parsePat(byte[] data, int table, int end) {
+        if (table + 8 > end) return;
+        int sectionEnd = Math.min(end, table + 3 + (((data[table + 1] & 0x0F) << 8) | (data[table + 2] & 0xFF)) - 4);
+        for (int i = table + 8; i + 4 <= sectionEnd; i += 4) {
+            int program = ((data[i] & 0xFF) << 8) | (data[i + 1] & 0xFF);
+            if (program != 0) {
+                pmtPid = ((data[i + 2] & 0x1F) << 8) | (data[i + 3] & 0xFF);
+                return;
+            }
+        }
+    }
+
+    private void parsePmt(byte[] data, int table, int end) {
+        if (table + 12 > end) return;
+        int sectionEnd = Math.min(end, table + 3 + (((data[table + 1] & 0x0F) << 8) | (data[table + 2] & 0xFF)) - 4);
+        int programInfoLength = ((data[table + 10] & 0x0F) << 8) | (data[table + 11] & 0xFF);
+
+        for (int i = table + 12 + programInfoLength; i + 5 <= sectionEnd; ) {
+            int streamType = data[i] & 0xFF;
+            int pid = ((data[i + 1] & 0x1F) << 8) | (data[i + 2] & 0xFF);
+            int infoLength = ((data[i + 3] & 0x0F) << 8) | (data[i + 4] & 0xFF);
+            // 0x03/0x04 MPEG audio, 0x0F ADTS AAC, 0x11 LATM AAC
+            if (streamType == 0x03 || streamType == 0x04 || streamType == 0x0F || streamType == 0x11) {
+                audioPid = pid;
+                audioStreamType = streamType;
+                return;
+            }
+            i += 5 + infoLength;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.example;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Converts decoded 16-bit little-endian PCM from a station's own format
+ * into the format the output device was opened with: channel remix first,
+ * then sample-rate conversion. Buffers are kept between calls and only
+ * grow, so steady-state conversion doesn't allocate.
+ */
+public class PcmConverter {
+
+    private final int inChannels;
+    private final int outChannels;
+    private final Resampler resampler;
+
+    private float[] samples = new float[0];
+    private float[] mixed = new float[0];
+    private float[] resampled = new float[0];
+    private byte[] output = new byte[0];
+
+    public PcmConverter(AudioFormat source, AudioFormat target, Resampler.Quality quality) {
+        this.inChannels = source.getChannels();
+        this.outChannels = target.getChannels();
+        this.resampler = source.getSampleRate() == target.getSampleRate()
+                ? null
+                : new Resampler(source.getSampleRate(), target.getSampleRate(), outChannels, quality);
+    }
+
+    /**
+     * True when the source already matches the target and {@link #convert} is a plain copy.
+     */
+    public boolean isPassthrough() {
+        return resampler == null && inChannels == outChannels;
+    }
+
+    /**
+     * Converts {@code length} bytes of source PCM. The result is in {@link #buffer()}.
+     *
+     * @return number of bytes of converted PCM
+     */
+    public int convert(byte[] pcm, int length) {
+        int frames = length / (2 * inChannels);
+
+        if (isPassthrough()) {
+            ensureOutput(length);
+            System.arraycopy(pcm, 0, output, 0, length);
+            return length;
+        }
+
+        samples = ensure(samples, frames * inChannels);
+        for (int i = 0, b = 0; i < frames * inChannels; i++, b += 2) {
+            samples[i] = (short) ((pcm[b] & 0xFF) | (pcm[b + 1] << 8)) / 32768f;
+        }
+
+        mixed = ensure(mixed, frames * outChannels);
+        ChannelMixer.mix(samples, frames, inChannels, mixed, outChannels);
+
+        float[] result = mixed;
+        int outFrames = frames;
+        if (resampler != null) {
+            resampled = ensure(resampled, resampler.maxOutputFrames(frames) * outChannels);
+            outFrames = resampler.process(mixed, frames, resampled);
+            result = resampled;
+        }
+
+        int outSamples = outFrames * outChannels;
+        ensureOutput(outSamples * 2);
+        for (int i = 0, b = 0; i < outSamples; i++, b += 2) {
+            int s = Math.round(result[i] * 32768f);
+            s = Math.max(-32768, Math.min(32767, s));
+            output[b] = (byte) s;
+            output[b + 1] = (byte) (s >> 8);
+        }
+        return outSamples * 2;
+    }
+
+    /**
+     * Converted PCM from the last {@link #convert} call; reused by the next one.
+     */
+    public byte[] buffer() {
+        return output;
+    }
+
+    private void ensureOutput(int bytes) {
+        if (output.length < bytes) output = new byte[bytes];
+    }
+
+    private static float[] ensure(float[] array, int size) {
+        return array.length >= size ? array : new float[size];
+    }
+}
@@ -0,0 +1,94 @@
+package org.example;
+
+/**
+ * Bounded single-producer, single-consumer byte queue for converted PCM.
+ *
+ * The incoming station of a crossfade decodes into one of these while the
+ * outgoing station is still playing; the outgoing decoder takes from it
+ * without blocking and mixes the bytes into what it writes to the device.
+ * The storage is allocated once, so neither side allocates per buffer.
+ */
+public class PcmFifo {
+
+    private final byte[] data;
+    private int readIndex = 0;
+    private int size = 0;
+    private boolean released = false;
+
+    public PcmFifo(int capacityBytes) {
+        this.data = new byte[capacityBytes];
+    }
+
+    public synchronized int available() {
+        return size;
+    }
+
+    /**
+     * Queues {@code len} bytes, waiting at most {@code timeoutMillis} for room (0 waits forever).
+     *
+     * @return false without queuing anything if the queue was released or stayed full
+     */
+    public synchronized boolean offer(byte[] src, int off, int len, long timeoutMillis) throws InterruptedException {
+        if (len > data.length) {
+            throw new IllegalArgumentException("Block of " + len + " bytes exceeds capacity " + data.length);
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (data.length - size < len && !released) {
+            long remaining = timeoutMillis == 0 ? 0 : deadline - System.currentTimeMillis();
+            if (timeoutMillis > 0 && remaining <= 0) return false;
+            wait(remaining);
+        }
+        if (released) return false;
+
+        int writeIndex = (readIndex + size) % data.length;
+        int first = Math.min(len, data.length - writeIndex);
+        System.arraycopy(src, off, data, writeIndex, first);
+        System.arraycopy(src, off + first, data, 0, len - first);
+        size += len;
+        return true;
+    }
+
+    /**
+     * Dequeues up to {@code len} bytes without waiting.
+     *
+     * @return number of bytes copied, 0 if the queue is empty
+     */
+    public synchronized int take(byte[] dst, int off, int len) {
+        int n = Math.min(len, size);
+        int first = Math.min(n, data.length - readIndex);
+        System.arraycopy(data, readIndex, dst, off, first);
+        System.arraycopy(data, 0, dst, off + first, n - first);
+        readIndex = (readIndex + n) % data.length;
+        size -= n;
+        notifyAll();
+        return n;
+    }
+
+    /**
+     * Stops the producer from queuing: a waiting or later {@link #offer} returns false.
+     * What is already queued can still be taken.
+     */
+    public synchronized void release() {
+        released = true;
+        notifyAll();
+    }
+
+    public synchronized boolean isReleased() {
+        return released;
+    }
+
+    /**
+     * Waits at most {@code timeoutMillis} for {@link #release()}.
+     *
+     * @return whether the queue has been released
+     */
+    public synchronized boolean awaitRelease(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long remaining = timeoutMillis;
+        while (!released && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        return released;
+    }
+}
@@ -24,14 +24,40 @@ public class RadioBrowserAPI {
     private static final int RESULT_LIMIT = 50;
     private static final int TIMEOUT_SECONDS = 10;
 
-    private final HttpClient client = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(TIMEOUT_SECONDS))
-            .followRedirects(HttpClient.Redirect.NORMAL)
-            .build();
-    private final ObjectMapper mapper = new ObjectMapper();
+    // Both are created on first use; building them costs noticeable class loading at launch
+    private HttpClient client;
+    private ObjectMapper mapper;
 
+    private final List<String> fixedServers;
     private List<String> serverUrls = null;
 
+    public RadioBrowserAPI() {
+        this.fixedServers = null;
+    }
+
+    /**
+     * Uses exactly these servers (base URLs ending in /json) instead of DNS discovery,
+     * e.g. a private mirror or {@code FakeRadioBrowserServer} in the tests. They are tried in order.
+     */
+    public RadioBrowserAPI(List<String> servers) {
+        this.fixedServers = List.copyOf(servers);
+    }
+
+    private synchronized HttpClient client() {
+        if (client == null) {
+            client = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofSeconds(TIMEOUT_SECONDS))
+                    .followRedirects(HttpClient.Redirect.NORMAL)
+                    .build();
+        }
+        return client;
+    }
+
+    private synchronized ObjectMapper mapper() {
+        if (mapper == null) mapper = new ObjectMapper();
+        return mapper;
+    }
+
     private List<String> discoverServers() {
         List<String> servers = new ArrayList<>();
         try {
@@ -65,6 +91,7 @@ public class RadioBrowserAPI {
     }
 
     private List<String> getServers() {
+        if (fixedServers != null) return fixedServers;
         if (serverUrls == null) serverUrls = discoverServers();
         return serverUrls;
     }
@@ -102,7 +129,7 @@ public class RadioBrowserAPI {
                         .GET()
                         .build();
 
-                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> response = client().send(request, HttpResponse.BodyHandlers.ofString());
 
                 if (response.statusCode() == 200) {
                     return parseStations(response.body());
@@ -118,11 +145,15 @@ public class RadioBrowserAPI {
         List<String> stations = new ArrayList<>();
         try {
             @SuppressWarnings("unchecked")
-            List<Map<String, Object>> data = mapper.readValue(json, List.class);
+            List<Map<String, Object>> data = mapper().readValue(json, List.class);
 
             for (Map<String, Object> station : data) {
                 String name = (String) station.get("name");
-                String urlStream = (String) station.get("url");
+                // url_resolved skips playlist and redirect hops the API already followed
+                String urlStream = (String) station.get("url_resolved");
+                if (urlStream == null || urlStream.isBlank()) {
+                    urlStream = (String) station.get("url");
+                }
                 String codec = (String) station.get("codec");
 
                 if (name != null && urlStream != null && !urlStream.isBlank()) {
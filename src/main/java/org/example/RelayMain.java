@@ -0,0 +1,63 @@
+package org.example;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Headless entry point for running the player as an in-house radio relay.
+ * Touches no JavaFX classes and needs no audio device.
+ *
+ * Usage: RelayMain [--port 8000] name=url [name=wav:url ...]
+ *
+ * Each station is then available at http://host:port/name, either as the
+ * untouched upstream stream or, with the wav: prefix, decoded to PCM WAV.
+ */
+public class RelayMain {
+
+    private static final int DEFAULT_PORT = 8000;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = DEFAULT_PORT;
+        List<StationRelay> stations = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--port") && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+                continue;
+            }
+
+            int eq = args[i].indexOf('=');
+            if (eq <= 0) {
+                System.err.println("Ignoring argument: " + args[i]);
+                continue;
+            }
+
+            String name = args[i].substring(0, eq);
+            String url = args[i].substring(eq + 1);
+            StationRelay.Mode mode = StationRelay.Mode.PASSTHROUGH;
+            if (url.startsWith("wav:")) {
+                mode = StationRelay.Mode.WAV;
+                url = url.substring(4);
+            }
+            stations.add(new StationRelay(name, url, mode));
+        }
+
+        if (stations.isEmpty()) {
+            System.err.println("Usage: RelayMain [--port " + DEFAULT_PORT + "] name=url [name=wav:url ...]");
+            System.exit(1);
+        }
+
+        RelayServer server = new RelayServer(new InetSocketAddress(port));
+        for (StationRelay station : stations) {
+            server.addMount(station);
+            System.out.println("Relaying " + station.getUrl() + " on " + station.getMount()
+                    + (station.getMode() == StationRelay.Mode.WAV ? " (WAV)" : ""));
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        server.start();
+        System.out.println("Relay listening on port " + server.getPort());
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,359 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless HTTP relay. Every mount is pulled once by a {@link StationRelay}
+ * and served to any number of listeners from its shared ring buffer.
+ *
+ * All sockets are non-blocking and driven by a single selector thread.
+ * A listener that falls so far behind that its data was overwritten, by
+ * reading slowly or not at all, is moved back to the live edge; one that keeps falling behind is dropped,
+ * so a slow client never stalls the others. Skips are forgotten once a
+ * listener has kept up with live for a minute.
+ */
+public class RelayServer implements Closeable {
+
+    private static final int REQUEST_LIMIT = 4096;
+    private static final int CHUNK_BYTES = 8192;
+    private static final int MAX_SKIPS = 3;
+    // Bounds kernel buffering per listener, so falling behind shows up in the ring instead of socket memory
+    private static final int SEND_BUFFER_BYTES = 64 * 1024;
+    // A listener that has caught up to live this long after its last skip starts with a clean slate
+    private static final long SKIP_FORGIVE_NANOS = 60_000_000_000L;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+
+    private final Map<String, StationRelay> mounts = new ConcurrentHashMap<>();
+    private final Queue<StationRelay> pendingData = new ConcurrentLinkedQueue<>();
+    private final Map<StationRelay, Boolean> signalled = new ConcurrentHashMap<>();
+
+    // Only touched by the selector thread
+    private final Map<StationRelay, List<Listener>> listenersByMount = new HashMap<>();
+    private final ByteBuffer discard = ByteBuffer.allocate(1024);
+
+    private final AtomicInteger listenerCount = new AtomicInteger();
+    private volatile boolean running = false;
+    private Thread selectorThread;
+
+    public RelayServer(InetSocketAddress bindAddress) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(bindAddress, 256);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public int getListenerCount() {
+        return listenerCount.get();
+    }
+
+    /**
+     * Registers a mount and starts pulling its upstream. The server owns the relay from here on.
+     */
+    public void addMount(StationRelay relay) {
+        relay.setOnData(() -> signal(relay));
+        mounts.put(relay.getMount(), relay);
+        relay.start();
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        selectorThread = new Thread(this::selectLoop);
+        selectorThread.setDaemon(true);
+        selectorThread.setName("Relay-Selector");
+        selectorThread.start();
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        for (StationRelay relay : mounts.values()) {
+            relay.stop();
+        }
+        selector.wakeup();
+        if (selectorThread != null) {
+            try {
+                selectorThread.join(2000);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+            selectorThread = null;
+        }
+        try { serverChannel.close(); } catch (IOException ignored) {}
+        try { selector.close(); } catch (IOException ignored) {}
+    }
+
+    // Called on relay threads; coalesces bursts into one wakeup per mount
+    private void signal(StationRelay relay) {
+        if (signalled.putIfAbsent(relay, Boolean.TRUE) == null) {
+            pendingData.add(relay);
+            selector.wakeup();
+        }
+    }
+
+    private void selectLoop() {
+        try {
+            while (running) {
+                selector.select(1000);
+
+                StationRelay relay;
+                while ((relay = pendingData.poll()) != null) {
+                    signalled.remove(relay);
+                    List<Listener> listeners = listenersByMount.get(relay);
+                    if (listeners == null) continue;
+                    // Copy, pump may close and unregister listeners
+                    for (Listener listener : new ArrayList<>(listeners)) {
+                        if (!listener.waitingForWritable) {
+                            pump(listener);
+                        } else if (listener.position < relay.getBuffer().oldestPosition()) {
+                            // Stalled with a full socket; still counts as falling behind
+                            skipToLive(listener);
+                        }
+                    }
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+
+                    if (key.isAcceptable()) {
+                        try {
+                            accept();
+                        } catch (IOException e) {
+                            System.err.println("Relay accept failed: " + e.getMessage());
+                        }
+                        continue;
+                    }
+
+                    Listener listener = (Listener) key.attachment();
+                    if (key.isReadable()) handleRead(listener);
+                    if (key.isValid() && key.isWritable()) {
+                        listener.waitingForWritable = false;
+                        pump(listener);
+                    }
+                }
+            }
+        } catch (ClosedSelectorException ignored) {
+        } catch (IOException e) {
+            System.err.println("Relay selector failed: " + e.getMessage());
+        } finally {
+            if (selector.isOpen()) {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() instanceof Listener listener) closeListener(listener);
+                }
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            channel.setOption(StandardSocketOptions.SO_SNDBUF, SEND_BUFFER_BYTES);
+            Listener listener = new Listener(channel);
+            listener.key = channel.register(selector, SelectionKey.OP_READ, listener);
+            listenerCount.incrementAndGet();
+        }
+    }
+
+    private void handleRead(Listener listener) {
+        try {
+            if (listener.relay != null || listener.closeWhenFlushed) {
+                // Listeners never send anything after the request; only watch for hang-ups
+                discard.clear();
+                if (listener.channel.read(discard) < 0) closeListener(listener);
+                return;
+            }
+
+            if (listener.channel.read(listener.request) < 0) {
+                closeListener(listener);
+                return;
+            }
+            String head = new String(listener.request.array(), 0, listener.request.position(), StandardCharsets.ISO_8859_1);
+            int end = head.indexOf("\r\n\r\n");
+            if (end < 0) {
+                if (!listener.request.hasRemaining()) closeListener(listener);
+                return;
+            }
+            route(listener, head.substring(0, head.indexOf("\r\n")));
+        } catch (IOException e) {
+            closeListener(listener);
+        }
+    }
+
+    private void route(Listener listener, String requestLine) {
+        String[] parts = requestLine.split(" ");
+        String path = parts.length >= 2 ? parts[1] : "";
+        int query = path.indexOf('?');
+        if (query >= 0) path = path.substring(0, query);
+
+        StationRelay relay = parts[0].equals("GET") ? mounts.get(path) : null;
+        if (relay == null) {
+            listener.out.clear();
+            listener.out.put("HTTP/1.0 404 Not Found\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            listener.out.flip();
+            listener.closeWhenFlushed = true;
+            pump(listener);
+            return;
+        }
+
+        listener.relay = relay;
+        listenersByMount.computeIfAbsent(relay, r -> new ArrayList<>()).add(listener);
+        pump(listener);
+    }
+
+    /**
+     * Writes as much as the socket takes without blocking. Arms OP_WRITE only
+     * while the socket is full; otherwise the listener idles until the next data signal.
+     */
+    private void pump(Listener listener) {
+        StationRelay relay = listener.relay;
+        try {
+            while (true) {
+                if (!listener.out.hasRemaining()) {
+                    if (listener.closeWhenFlushed || relay == null) {
+                        if (listener.closeWhenFlushed) closeListener(listener);
+                        return;
+                    }
+                    if (!listener.headerSent) {
+                        if (!relay.isReady()) return;
+                        fillHeader(listener);
+                    } else if (!fillChunk(listener)) {
+                        return;
+                    }
+                }
+
+                listener.channel.write(listener.out);
+                if (listener.out.hasRemaining()) {
+                    listener.waitingForWritable = true;
+                    listener.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                listener.key.interestOps(SelectionKey.OP_READ);
+            }
+        } catch (IOException e) {
+            closeListener(listener);
+        }
+    }
+
+    private void fillHeader(Listener listener) {
+        StationRelay relay = listener.relay;
+        String response = "HTTP/1.0 200 OK\r\n"
+                + "Content-Type: " + relay.getContentType() + "\r\n"
+                + "Cache-Control: no-cache\r\n"
+                + "Connection: close\r\n"
+                + "icy-name: " + relay.getMount().substring(1) + "\r\n"
+                + "\r\n";
+        listener.formatGeneration = relay.formatGeneration();
+        listener.out.clear();
+        listener.out.put(response.getBytes(StandardCharsets.ISO_8859_1));
+        listener.out.put(relay.streamHeader());
+        listener.out.flip();
+        listener.position = relay.joinPosition();
+        listener.headerSent = true;
+    }
+
+    // Returns false when the listener is caught up (or was dropped)
+    private boolean fillChunk(Listener listener) {
+        StationRelay relay = listener.relay;
+        if (listener.formatGeneration != relay.formatGeneration()) {
+            // The header this listener got no longer describes the PCM
+            closeListener(listener);
+            return false;
+        }
+        while (true) {
+            listener.out.clear();
+            int n = relay.getBuffer().read(listener.position, listener.out);
+            if (n < 0) {
+                if (!skipToLive(listener)) return false;
+                continue;
+            }
+            listener.out.flip();
+            if (n == 0) {
+                if (listener.skips > 0 && System.nanoTime() - listener.lastSkipNanos > SKIP_FORGIVE_NANOS) {
+                    listener.skips = 0;
+                }
+                return false;
+            }
+            listener.position += n;
+            return true;
+        }
+    }
+
+    /**
+     * Moves an overrun listener back to live, or drops one that keeps falling behind.
+     *
+     * @return false if the listener was dropped
+     */
+    private boolean skipToLive(Listener listener) {
+        if (++listener.skips > MAX_SKIPS) {
+            closeListener(listener);
+            return false;
+        }
+        listener.lastSkipNanos = System.nanoTime();
+        listener.position = listener.relay.joinPosition();
+        return true;
+    }
+
+    private void closeListener(Listener listener) {
+        if (listener.closed) return;
+        listener.closed = true;
+        listenerCount.decrementAndGet();
+        if (listener.relay != null) {
+            List<Listener> listeners = listenersByMount.get(listener.relay);
+            if (listeners != null) listeners.remove(listener);
+        }
+        if (listener.key != null) listener.key.cancel();
+        try { listener.channel.close(); } catch (IOException ignored) {}
+    }
+
+    private static final class Listener {
+        final SocketChannel channel;
+        final ByteBuffer request = ByteBuffer.allocate(REQUEST_LIMIT);
+        final ByteBuffer out = ByteBuffer.allocateDirect(CHUNK_BYTES).flip();
+        SelectionKey key;
+
+        StationRelay relay;
+        boolean headerSent;
+        boolean closeWhenFlushed;
+        boolean waitingForWritable;
+        boolean closed;
+        long position;
+        int formatGeneration;
+        int skips;
+        long lastSkipNanos;
+
+        Listener(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * Streaming sample-rate converter using a polyphase windowed-sinc filter.
+ *
+ * The filter is tabulated once for a fixed number of phases; each output
+ * sample linearly interpolates between the two nearest phases, so any rate
+ * ratio works without building a rational L/M filter bank. Input arrives in
+ * arbitrary blocks and the filter history carries over between calls, so
+ * block boundaries are inaudible. Works on interleaved float samples.
+ */
+public class Resampler {
+
+    /**
+     * Filter length, table resolution and passband, traded against CPU cost.
+     */
+    public enum Quality {
+        LOW(8, 64, 0.85),
+        MEDIUM(16, 256, 0.92),
+        HIGH(32, 1024, 0.97);
+
+        final int taps;
+        final int phases;
+        final double passband;
+
+        Quality(int taps, int phases, double passband) {
+            this.taps = taps;
+            this.phases = phases;
+            this.passband = passband;
+        }
+    }
+
+    private final int channels;
+    private final double step;
+    private final int taps;
+    private final int half;
+    private final int phases;
+
+    // (phases + 1) rows of taps; the extra row lets phase interpolation read p + 1
+    private final float[] table;
+    private final float[] coeffs;
+
+    private float[] history;
+    private int historyFrames;
+    private double position;
+
+    public Resampler(float inputRate, float outputRate, int channels, Quality quality) {
+        this.channels = channels;
+        this.step = inputRate / outputRate;
+        this.taps = quality.taps;
+        this.half = taps / 2;
+        this.phases = quality.phases;
+        this.coeffs = new float[taps];
+
+        // Lower the cutoff below the output Nyquist when downsampling
+        double cutoff = Math.min(1.0, outputRate / inputRate) * quality.passband;
+        this.table = new float[(phases + 1) * taps];
+        for (int p = 0; p <= phases; p++) {
+            double frac = (double) p / phases;
+            double sum = 0;
+            for (int k = 0; k < taps; k++) {
+                double x = (k - half + 1) - frac;
+                double value = cutoff * sinc(cutoff * x) * blackman(x / half);
+                table[p * taps + k] = (float) value;
+                sum += value;
+            }
+            // Unity gain at DC for every phase
+            for (int k = 0; k < taps; k++) {
+                table[p * taps + k] /= (float) sum;
+            }
+        }
+
+        // Start with half a filter of silence so the first output lines up with the first input
+        this.history = new float[(taps + 4096) * channels];
+        this.historyFrames = half - 1;
+        this.position = half - 1;
+    }
+
+    /**
+     * Upper bound of output frames produced for {@code inputFrames} of input.
+     */
+    public int maxOutputFrames(int inputFrames) {
+        return (int) Math.ceil((inputFrames + taps) / step) + 2;
+    }
+
+    /**
+     * Resamples {@code frames} interleaved frames from {@code in} into {@code out}.
+     *
+     * @return number of frames written to {@code out}
+     */
+    public int process(float[] in, int frames, float[] out) {
+        append(in, frames);
+
+        int produced = 0;
+        while (true) {
+            int n = (int) position;
+            if (n + half >= historyFrames) break;
+
+            double phase = (position - n) * phases;
+            int p = (int) phase;
+            float a = (float) (phase - p);
+            int rowA = p * taps;
+            int rowB = rowA + taps;
+            for (int k = 0; k < taps; k++) {
+                float ca = table[rowA + k];
+                coeffs[k] = ca + a * (table[rowB + k] - ca);
+            }
+
+            int base = (n - half + 1) * channels;
+            int outBase = produced * channels;
+            for (int c = 0; c < channels; c++) {
+                float acc = 0f;
+                int idx = base + c;
+                for (int k = 0; k < taps; k++, idx += channels) {
+                    acc += history[idx] * coeffs[k];
+                }
+                out[outBase + c] = acc;
+            }
+            produced++;
+            position += step;
+        }
+
+        // Drop frames no future output can reach
+        int drop = Math.max(0, (int) position - (half - 1));
+        drop = Math.min(drop, historyFrames);
+        if (drop > 0) {
+            System.arraycopy(history, drop * channels, history, 0, (historyFrames - drop) * channels);
+            historyFrames -= drop;
+            position -= drop;
+        }
+        return produced;
+    }
+
+    private void append(float[] in, int frames) {
+        int needed = (historyFrames + frames) * channels;
+        if (needed > history.length) {
+            history = Arrays.copyOf(history, Math.max(needed, history.length * 2));
+        }
+        System.arraycopy(in, 0, history, historyFrames * channels, frames * channels);
+        historyFrames += frames;
+    }
+
+    private static double sinc(double x) {
+        if (Math.abs(x) < 1e-9) return 1.0;
+        double px = Math.PI * x;
+        return Math.sin(px) / px;
+    }
+
+    private static double blackman(double u) {
+        if (Math.abs(u) >= 1.0) return 0.0;
+        return 0.42 + 0.5 * Math.cos(Math.PI * u) + 0.08 * Math.cos(2 * Math.PI * u);
+    }
+}
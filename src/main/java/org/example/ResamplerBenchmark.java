@@ -0,0 +1,70 @@
+package org.example;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.Random;
+
+/**
+ * Measures what sample-rate conversion costs per stream, for every
+ * {@link Resampler.Quality} and the common 44.1/48 kHz conversions.
+ * Runs headless: java -cp radio-player.jar org.example.ResamplerBenchmark [seconds]
+ *
+ * Reports nanoseconds per output frame, how many times faster than real
+ * time one core converts, and the share of a core one stereo stream needs.
+ */
+public class ResamplerBenchmark {
+
+    private static final int BLOCK_BYTES = 4096;
+    private static final int WARMUP_ROUNDS = 3;
+
+    public static void main(String[] args) {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+
+        float[][] conversions = {{44100f, 48000f}, {48000f, 44100f}, {22050f, 48000f}};
+        System.out.printf("%-7s %-16s %12s %12s %10s%n", "quality", "conversion", "ns/frame", "x realtime", "core %");
+
+        for (Resampler.Quality quality : Resampler.Quality.values()) {
+            for (float[] rates : conversions) {
+                AudioFormat source = pcmFormat(rates[0]);
+                AudioFormat target = pcmFormat(rates[1]);
+                byte[] audio = noise((int) (rates[0] * 4 * seconds));
+
+                for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                    run(new PcmConverter(source, target, quality), audio);
+                }
+
+                long start = System.nanoTime();
+                long outBytes = run(new PcmConverter(source, target, quality), audio);
+                long elapsed = System.nanoTime() - start;
+
+                long outFrames = outBytes / 4;
+                double realtime = seconds / (elapsed / 1e9);
+                System.out.printf("%-7s %-16s %12.1f %12.0f %9.3f%%%n",
+                        quality,
+                        (int) rates[0] + "->" + (int) rates[1],
+                        (double) elapsed / outFrames,
+                        realtime,
+                        100.0 / realtime);
+            }
+        }
+    }
+
+    private static long run(PcmConverter converter, byte[] audio) {
+        byte[] block = new byte[BLOCK_BYTES];
+        long total = 0;
+        for (int off = 0; off + BLOCK_BYTES <= audio.length; off += BLOCK_BYTES) {
+            System.arraycopy(audio, off, block, 0, BLOCK_BYTES);
+            total += converter.convert(block, BLOCK_BYTES);
+        }
+        return total;
+    }
+
+    private static AudioFormat pcmFormat(float rate) {
+        return new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, rate, 16, 2, 4, rate, false);
+    }
+
+    private static byte[] noise(int bytes) {
+        byte[] data = new byte[bytes - bytes % 4];
+        new Random(42).nextBytes(data);
+        return data;
+    }
+}
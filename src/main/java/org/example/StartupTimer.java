@@ -0,0 +1,32 @@
+package org.example;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records how long after process start each launch phase was reached,
+ * e.g. first window shown or first audio heard.
+ * Phases are printed as they happen when run with {@code -Dradio.timing=true}.
+ */
+public final class StartupTimer {
+
+    private static final boolean PRINT = Boolean.getBoolean("radio.timing");
+    private static final long PROCESS_START = ProcessHandle.current().info().startInstant()
+            .map(Instant::toEpochMilli)
+            .orElse(System.currentTimeMillis());
+
+    private static final Map<String, Long> phases = new ConcurrentHashMap<>();
+
+    private StartupTimer() {}
+
+    /**
+     * Records the first time {@code phase} is reached; later calls are ignored.
+     */
+    public static void mark(String phase) {
+        long elapsed = System.currentTimeMillis() - PROCESS_START;
+        if (phases.putIfAbsent(phase, elapsed) == null && PRINT) {
+            System.out.println("[startup] " + phase + " +" + elapsed + " ms");
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package org.example;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Pulls one upstream station exactly once and writes it into a shared
+ * {@link StreamRingBuffer} for {@link RelayServer} to fan out.
+ * Either passes the compressed bytes through untouched or decodes them
+ * to 16-bit PCM that listeners receive as an endless WAV stream.
+ * Reconnects with backoff when the upstream drops.
+ */
+public class StationRelay {
+
+    public enum Mode { PASSTHROUGH, WAV }
+
+    private static final int DEFAULT_BUFFER_BYTES = 1 << 20;
+    private static final int MAX_BACKOFF_MS = 30_000;
+
+    private final String mount;
+    private final String url;
+    private final Mode mode;
+    private final StreamRingBuffer buffer;
+    private final StreamResolver resolver = new StreamResolver();
+
+    // How far behind live a new listener starts, so players fill their buffer quickly
+    private final int burstBytes;
+
+    private volatile boolean running = false;
+    private volatile String contentType;
+    private volatile AudioFormat pcmFormat;
+    // Bumped when a reconnect decodes to a different format; the old WAV header no longer fits
+    private volatile int formatGeneration;
+    private volatile long formatStart;
+    private volatile InputStream upstream;
+    private Thread relayThread;
+
+    private Runnable onData;
+
+    public StationRelay(String mount, String url, Mode mode) {
+        this(mount, url, mode, DEFAULT_BUFFER_BYTES);
+    }
+
+    public StationRelay(String mount, String url, Mode mode, int bufferBytes) {
+        this.mount = mount.startsWith("/") ? mount : "/" + mount;
+        this.url = url;
+        this.mode = mode;
+        this.buffer = new StreamRingBuffer(bufferBytes);
+        this.burstBytes = buffer.capacity() / 8;
+    }
+
+    public String getMount() {
+        return mount;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public StreamRingBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Called on the relay thread every time new bytes land in the buffer.
+     */
+    public void setOnData(Runnable callback) {
+        this.onData = callback;
+    }
+
+    /**
+     * True once the upstream has connected and listeners can be answered.
+     */
+    public boolean isReady() {
+        return contentType != null && buffer.writePosition() > 0;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Bytes every listener receives before the shared stream; a WAV header in WAV mode.
+     */
+    public byte[] streamHeader() {
+        AudioFormat format = pcmFormat;
+        if (mode != Mode.WAV || format == null) return new byte[0];
+        return wavHeader(format);
+    }
+
+    /**
+     * Changes whenever the PCM format changes. Listeners that received the header
+     * of an older generation have to be dropped.
+     */
+    public int formatGeneration() {
+        return formatGeneration;
+    }
+
+    /**
+     * Position a new or skipped listener should read from: a short burst behind live,
+     * never before the current format started, aligned to whole PCM frames in WAV mode.
+     */
+    public long joinPosition() {
+        long live = buffer.writePosition();
+        long start = Math.max(buffer.oldestPosition(), live - burstBytes);
+        start = Math.max(start, formatStart);
+        AudioFormat format = pcmFormat;
+        if (mode == Mode.WAV && format != null) {
+            int frame = Math.max(1, format.getFrameSize());
+            start += (frame - start % frame) % frame;
+        }
+        return Math.min(start, live);
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        relayThread = new Thread(this::runLoop);
+        relayThread.setDaemon(true);
+        relayThread.setName("Relay" + mount);
+        relayThread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        // Closing the socket is what actually unblocks the upstream read
+        InputStream in = upstream;
+        if (in != null) {
+            try { in.close(); } catch (IOException ignored) {}
+        }
+        if (relayThread != null) {
+            relayThread.interrupt();
+            try {
+                relayThread.join(2000);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+            relayThread = null;
+        }
+    }
+
+    private void runLoop() {
+        int backoff = 1000;
+        while (running) {
+            long before = buffer.writePosition();
+            try {
+                pullUpstream();
+            } catch (UnsupportedAudioFileException e) {
+                System.err.println(mount + " unsupported format: " + e.getMessage());
+            } catch (IOException e) {
+                if (running) System.err.println(mount + " upstream error: " + e.getMessage());
+            }
+            if (!running) break;
+
+            // A session that delivered data resets the backoff
+            if (buffer.writePosition() > before) backoff = 1000;
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                break;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+        }
+    }
+
+    private void pullUpstream() throws IOException, UnsupportedAudioFileException {
+        StreamResolver.ResolvedStream resolved = resolver.open(url);
+
+        try (InputStream in = new BufferedInputStream(resolved.stream(), 16384)) {
+            upstream = in;
+            if (!running) return;
+            if (mode == Mode.PASSTHROUGH) {
+                String type = resolved.contentType();
+                contentType = type != null ? type : "application/octet-stream";
+                copy(in);
+            } else {
+                try (AudioInputStream raw = AudioSystem.getAudioInputStream(in)) {
+                    AudioFormat source = raw.getFormat();
+                    float rate = source.getSampleRate() > 0 ? source.getSampleRate() : 44100;
+                    int channels = source.getChannels() > 0 ? source.getChannels() : 2;
+                    AudioFormat decoded = new AudioFormat(
+                            AudioFormat.Encoding.PCM_SIGNED, rate, 16, channels, channels * 2, rate, false);
+
+                    try (AudioInputStream pcm = AudioSystem.getAudioInputStream(decoded, raw)) {
+                        AudioFormat previous = pcmFormat;
+                        if (previous != null && !previous.matches(decoded)) {
+                            System.err.println(mount + " format changed to " + decoded + ", dropping listeners");
+                            formatStart = buffer.writePosition();
+                            pcmFormat = decoded;
+                            formatGeneration++;
+                        } else {
+                            pcmFormat = decoded;
+                        }
+                        contentType = "audio/wav";
+                        copy(pcm);
+                    }
+                }
+            }
+        } finally {
+            upstream = null;
+        }
+    }
+
+    private void copy(InputStream in) throws IOException {
+        byte[] chunk = new byte[8192];
+        int bytesRead;
+        while (running && (bytesRead = in.read(chunk, 0, chunk.length)) != -1) {
+            if (bytesRead == 0) continue;
+            buffer.write(chunk, 0, bytesRead);
+            if (onData != null) onData.run();
+        }
+    }
+
+    /**
+     * WAV header with maximal chunk sizes, as used for live PCM streams of unknown length.
+     */
+    static byte[] wavHeader(AudioFormat format) {
+        int channels = format.getChannels();
+        int rate = (int) format.getSampleRate();
+        int bits = format.getSampleSizeInBits();
+        int blockAlign = channels * bits / 8;
+
+        ByteBuffer header = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[] {'R', 'I', 'F', 'F'}).putInt(0xFFFFFFFF);
+        header.put(new byte[] {'W', 'A', 'V', 'E'});
+        header.put(new byte[] {'f', 'm', 't', ' '}).putInt(16);
+        header.putShort((short) 1).putShort((short) channels);
+        header.putInt(rate).putInt(rate * blockAlign);
+        header.putShort((short) blockAlign).putShort((short) bits);
+        header.put(new byte[] {'d', 'a', 't', 'a'}).putInt(0xFFFFFFFF);
+        return header.array();
+    }
+}
@@ -0,0 +1,317 @@
+package org.example;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns whatever a station URL points at into an open audio stream.
+ *
+ * Follows redirect chains (including http/https switches), unwraps PLS, M3U
+ * and ASX playlists, and hands HLS playlists to {@link HlsInputStream}.
+ * The final endpoint is cached per station URL for {@link #DEFAULT_TTL_MS},
+ * so playing the same station again goes straight to the stream in a single
+ * request. A direct stream is returned on the same connection that was used
+ * to identify it, so resolution never costs an extra round trip.
+ *
+ * Streams are requested with ICY metadata; where the server interleaves it,
+ * the returned stream is an {@link IcyMetadataInputStream} that strips it.
+ */
+public class StreamResolver {
+
+    public static final long DEFAULT_TTL_MS = 30 * 60 * 1000L;
+
+    private static final int MAX_REDIRECTS = 8;
+    private static final int MAX_PLAYLIST_DEPTH = 4;
+    private static final int MAX_PLAYLIST_BYTES = 256 * 1024;
+    private static final int SNIFF_BYTES = 512;
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    private static final int READ_TIMEOUT_MS = 15_000;
+
+    private static final Pattern ASX_REF = Pattern.compile("<ref\\s+href\\s*=\\s*\"([^\"]+)\"", Pattern.CASE_INSENSITIVE);
+
+    private enum Kind { DIRECT, HLS }
+
+    private static final class CacheEntry {
+        final String url;
+        final Kind kind;
+        final long expiresAt;
+
+        CacheEntry(String url, Kind kind, long expiresAt) {
+            this.url = url;
+            this.kind = kind;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * An opened station stream together with where it actually came from.
+     */
+    public static final class ResolvedStream {
+        private final InputStream stream;
+        private final String url;
+        private final String contentType;
+
+        ResolvedStream(InputStream stream, String url, String contentType) {
+            this.stream = stream;
+            this.url = url;
+            this.contentType = contentType;
+        }
+
+        public InputStream stream() {
+            return stream;
+        }
+
+        public String url() {
+            return url;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+    }
+
+    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+
+    public StreamResolver() {
+        this(DEFAULT_TTL_MS);
+    }
+
+    public StreamResolver(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Opens the audio stream behind {@code url}, using the cached endpoint when there is one.
+     */
+    public ResolvedStream open(String url) throws IOException {
+        CacheEntry cached = cache.get(url);
+        if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+            try {
+                return openCached(cached);
+            } catch (IOException e) {
+                // Endpoint moved or died; fall back to a full resolution
+                cache.remove(url);
+            }
+        }
+        return resolve(url, url, 0, false);
+    }
+
+    /**
+     * Resolves a playlist URL ahead of time so a later {@link #open} hits the cache.
+     * Only the playlists are fetched, never the audio behind them. Direct stream
+     * URLs are skipped, since {@link #open} reaches those in a single request anyway.
+     */
+    public void prefetch(String url) {
+        try {
+            if (looksLikePlaylist(url)) resolve(url, url, 0, true);
+        } catch (IOException e) {
+            System.err.println("Prefetch failed for " + url + ": " + e.getMessage());
+        }
+    }
+
+    private ResolvedStream openCached(CacheEntry entry) throws IOException {
+        if (entry.kind == Kind.HLS) {
+            return openHls(HlsInputStream.open(entry.url), entry.url);
+        }
+        URLConnection conn = connect(entry.url);
+        return new ResolvedStream(withoutMetadata(conn, conn.getInputStream()), entry.url, conn.getContentType());
+    }
+
+    /**
+     * With {@code probeOnly}, remembers the endpoint without connecting to the audio
+     * and returns null; entries that don't look like playlists are taken as direct streams.
+     */
+    private ResolvedStream resolve(String stationUrl, String url, int depth, boolean probeOnly) throws IOException {
+        if (depth > MAX_PLAYLIST_DEPTH) throw new IOException("Playlist nesting too deep at " + url);
+        if (probeOnly && !looksLikePlaylist(url)) {
+            remember(stationUrl, url, Kind.DIRECT);
+            return null;
+        }
+
+        URLConnection conn = followRedirects(url);
+        String finalUrl = conn.getURL().toString();
+        String contentType = conn.getContentType();
+
+        BufferedInputStream in = new BufferedInputStream(conn.getInputStream(), 16384);
+        String playlistType = playlistType(finalUrl, contentType, in);
+        if (playlistType == null) {
+            remember(stationUrl, finalUrl, Kind.DIRECT);
+            if (probeOnly) {
+                in.close();
+                return null;
+            }
+            return new ResolvedStream(withoutMetadata(conn, in), finalUrl, contentType);
+        }
+
+        String text;
+        try (in) {
+            text = new String(in.readNBytes(MAX_PLAYLIST_BYTES), StandardCharsets.UTF_8);
+        }
+
+        if (playlistType.equals("m3u") && HlsInputStream.isHlsPlaylist(text)) {
+            if (probeOnly) {
+                // Opening the stream would start fetching segments
+                remember(stationUrl, finalUrl, Kind.HLS);
+                return null;
+            }
+            HlsInputStream hls = HlsInputStream.open(finalUrl, text);
+            remember(stationUrl, hls.getMediaPlaylistUrl(), Kind.HLS);
+            return openHls(hls, finalUrl);
+        }
+
+        String entry = switch (playlistType) {
+            case "pls" -> firstPlsEntry(text);
+            case "asx" -> firstAsxEntry(text);
+            default -> firstM3uEntry(text);
+        };
+        if (entry == null) throw new IOException("Empty playlist at " + finalUrl);
+        return resolve(stationUrl, resolveAgainst(finalUrl, entry), depth + 1, probeOnly);
+    }
+
+    // The segments' audio (ADTS AAC or MPEG) decides the type, not the playlist's
+    private static ResolvedStream openHls(HlsInputStream hls, String url) throws IOException {
+        try {
+            return new ResolvedStream(hls, url, hls.getContentType());
+        } catch (IOException e) {
+            hls.close();
+            throw e;
+        }
+    }
+
+    private void remember(String stationUrl, String finalUrl, Kind kind) {
+        cache.put(stationUrl, new CacheEntry(finalUrl, kind, System.currentTimeMillis() + ttlMillis));
+    }
+
+    private static URLConnection connect(String url) throws IOException {
+        URLConnection conn = toUrl(url).openConnection();
+        conn.setRequestProperty("User-Agent", "JavaWebRadio/2.0");
+        conn.setRequestProperty("Icy-MetaData", "1");
+        conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        conn.setReadTimeout(READ_TIMEOUT_MS);
+        return conn;
+    }
+
+    // Servers that honour Icy-MetaData say in icy-metaint how often the blocks come
+    private static InputStream withoutMetadata(URLConnection conn, InputStream in) {
+        String interval = conn.getHeaderField("icy-metaint");
+        if (interval == null) return in;
+        try {
+            int metaInterval = Integer.parseInt(interval.trim());
+            return metaInterval > 0 ? new IcyMetadataInputStream(in, metaInterval) : in;
+        } catch (NumberFormatException e) {
+            return in;
+        }
+    }
+
+    // HttpURLConnection won't follow redirects across http/https, which many stations use
+    private static URLConnection followRedirects(String url) throws IOException {
+        for (int hop = 0; hop <= MAX_REDIRECTS; hop++) {
+            URLConnection conn = connect(url);
+            if (!(conn instanceof HttpURLConnection http)) return conn;
+
+            http.setInstanceFollowRedirects(false);
+            int status = http.getResponseCode();
+            if (status < 300 || status >= 400) {
+                if (status >= 400) throw new IOException("HTTP " + status + " from " + url);
+                return conn;
+            }
+
+            String location = http.getHeaderField("Location");
+            http.disconnect();
+            if (location == null) throw new IOException("Redirect without Location from " + url);
+            url = resolveAgainst(url, location);
+        }
+        throw new IOException("Too many redirects for " + url);
+    }
+
+    /**
+     * Resolves a possibly relative playlist entry or Location header against the URL it came from.
+     */
+    static String resolveAgainst(String base, String reference) throws IOException {
+        try {
+            return URI.create(base).resolve(reference.trim().replace(" ", "%20")).toString();
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Bad URL " + reference + " in " + base);
+        }
+    }
+
+    /**
+     * Parses a station or segment URL. URI is stricter than the deprecated URL
+     * constructor, so the spaces some station lists contain are escaped first.
+     */
+    static URL toUrl(String url) throws IOException {
+        try {
+            return URI.create(url.trim().replace(" ", "%20")).toURL();
+        } catch (IllegalArgumentException e) {
+            throw new MalformedURLException("Bad URL " + url);
+        }
+    }
+
+    private static boolean looksLikePlaylist(String url) throws IOException {
+        String path = toUrl(url).getPath().toLowerCase(Locale.ROOT);
+        return path.endsWith(".pls") || path.endsWith(".m3u") || path.endsWith(".m3u8") || path.endsWith(".asx");
+    }
+
+    /**
+     * Returns "pls", "m3u", "asx", or null for a direct audio stream.
+     * Uses the content type and extension, and peeks at the body when they're ambiguous.
+     */
+    private static String playlistType(String url, String contentType, BufferedInputStream in) throws IOException {
+        String type = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+        String path = toUrl(url).getPath().toLowerCase(Locale.ROOT);
+
+        if (type.contains("scpls") || path.endsWith(".pls")) return "pls";
+        if (type.contains("mpegurl") || path.endsWith(".m3u") || path.endsWith(".m3u8")) return "m3u";
+        if (type.contains("ms-asf") || type.contains("x-ms-asx") || path.endsWith(".asx")) return "asx";
+
+        // Audio content types are trusted; only sniff when the server is vague
+        if (type.startsWith("audio/") || type.contains("ogg")) return null;
+
+        in.mark(SNIFF_BYTES);
+        byte[] head = in.readNBytes(SNIFF_BYTES);
+        in.reset();
+        String text = new String(head, StandardCharsets.ISO_8859_1).trim().toLowerCase(Locale.ROOT);
+        if (text.startsWith("[playlist]")) return "pls";
+        if (text.startsWith("#extm3u")) return "m3u";
+        if (text.startsWith("<asx")) return "asx";
+        if (type.startsWith("text/") && text.startsWith("http")) return "m3u";
+        return null;
+    }
+
+    private static String firstPlsEntry(String text) {
+        for (String line : text.split("\\R")) {
+            String trimmed = line.trim();
+            int eq = trimmed.indexOf('=');
+            if (eq > 0 && trimmed.substring(0, eq).toLowerCase(Locale.ROOT).startsWith("file")) {
+                return trimmed.substring(eq + 1);
+            }
+        }
+        return null;
+    }
+
+    private static String firstM3uEntry(String text) {
+        for (String line : text.split("\\R")) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("#")) return trimmed;
+        }
+        return null;
+    }
+
+    private static String firstAsxEntry(String text) {
+        Matcher m = ASX_REF.matcher(text);
+        return m.find() ? m.group(1).replace("&amp;", "&") : null;
+    }
+}
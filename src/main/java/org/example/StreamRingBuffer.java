@@ -0,0 +1,104 @@
+package org.example;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-size byte ring with one writer and any number of readers.
+ * Readers keep their own absolute stream position, so a reader that falls
+ * too far behind the writer can tell it was overrun and skip ahead instead
+ * of reading torn data. No locks are taken on either side.
+ *
+ * The writer copies before it publishes, so the slots just past the published
+ * end may already be changing. Writes are split into chunks of at most
+ * {@link #guardBytes()}, and that much of the oldest data is treated as gone,
+ * so a reader never copies from the region being written.
+ */
+public class StreamRingBuffer {
+
+    private static final int MAX_WRITE = 16 * 1024;
+
+    private final byte[] data;
+    private final int mask;
+    private final int guard;
+
+    // Total number of bytes ever written; published after the copy completes
+    private volatile long writePosition = 0;
+
+    public StreamRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1024, capacity));
+        if (size < capacity) size <<= 1;
+        this.data = new byte[size];
+        this.mask = size - 1;
+        this.guard = Math.min(MAX_WRITE, size / 4);
+    }
+
+    public int capacity() {
+        return data.length;
+    }
+
+    /**
+     * Largest single copy the writer makes, and the part of the ring that is never readable.
+     */
+    public int guardBytes() {
+        return guard;
+    }
+
+    public long writePosition() {
+        return writePosition;
+    }
+
+    /**
+     * Oldest position that can still be read.
+     */
+    public long oldestPosition() {
+        return Math.max(0, writePosition - data.length + guard);
+    }
+
+    /**
+     * Appends bytes. Only one thread may call this.
+     */
+    public void write(byte[] src, int off, int len) {
+        while (len > 0) {
+            int n = Math.min(len, guard);
+            // Re-reading the volatile position keeps this chunk's copy after the last publish
+            long pos = writePosition;
+            int start = (int) (pos & mask);
+            int first = Math.min(n, data.length - start);
+            System.arraycopy(src, off, data, start, first);
+            if (first < n) {
+                System.arraycopy(src, off + first, data, 0, n - first);
+            }
+            writePosition = pos + n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Copies bytes starting at {@code position} into {@code dst}.
+     *
+     * @return bytes copied, 0 if the reader is caught up, or -1 if
+     *         {@code position} was overwritten before or during the copy
+     */
+    public int read(long position, ByteBuffer dst) {
+        long end = writePosition;
+        if (position < end - data.length + guard) return -1;
+
+        int n = (int) Math.min(end - position, dst.remaining());
+        if (n <= 0) return 0;
+
+        int start = (int) (position & mask);
+        int first = Math.min(n, data.length - start);
+        dst.put(data, start, first);
+        if (first < n) {
+            dst.put(data, 0, n - first);
+        }
+
+        // The writer may have lapped us while copying; its unpublished chunk is inside the guard.
+        // The fence keeps the copy from being reordered past the re-check.
+        VarHandle.acquireFence();
+        if (position < writePosition - data.length + guard) return -1;
+        return n;
+    }
+}
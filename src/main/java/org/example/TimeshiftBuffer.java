@@ -0,0 +1,367 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.VarHandle;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Timeshift store: a fixed-size ring file, memory-mapped, holding the raw
+ * compressed station bytes before they are decoded.
+ *
+ * One capture thread appends with {@link #write}; playback reads through
+ * {@link #openReader} and can start anywhere still inside the ring, which is
+ * what pause and rewind are built on. A coarse time index maps wall-clock
+ * times to positions, and {@link #export} copies a segment straight from the
+ * ring file with {@link FileChannel#transferTo}.
+ *
+ * As in {@link StreamRingBuffer}, writes land in chunks no larger than a
+ * guard band and that much of the oldest data counts as gone, so a reader
+ * that copied while being lapped notices it and skips ahead.
+ */
+public class TimeshiftBuffer implements Closeable {
+
+    // Sizing assumption for forMinutes(): the highest common stream bitrate
+    private static final int MAX_BITRATE_BYTES_PER_SEC = 320_000 / 8;
+    private static final long INDEX_INTERVAL_MS = 500;
+    private static final int MAX_WRITE = 16 * 1024;
+    private static final int INITIAL_INDEX_SIZE = 256;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+    private final int capacity;
+    private final int guard;
+
+    // Ring of (time, position) pairs covering what the ring file still holds; grows for low bitrates
+    private long[] indexTimes = new long[INITIAL_INDEX_SIZE];
+    private long[] indexPositions = new long[INITIAL_INDEX_SIZE];
+    private int indexCount = 0;
+    private int indexHead = 0;
+
+    private volatile long writePosition = 0;
+    // Where the recorded station ended, or -1 while it is live
+    private volatile long endPosition = -1;
+    private volatile boolean closed = false;
+
+    private volatile String contentType;
+
+    public TimeshiftBuffer(Path file, int capacityBytes) throws IOException {
+        this.capacity = capacityBytes;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityBytes);
+        this.guard = Math.min(MAX_WRITE, capacityBytes / 4);
+    }
+
+    /**
+     * Ring large enough for {@code minutes} of audio at up to 320 kbps.
+     */
+    public static TimeshiftBuffer forMinutes(Path file, int minutes) throws IOException {
+        return new TimeshiftBuffer(file, minutes * 60 * MAX_BITRATE_BYTES_PER_SEC);
+    }
+
+    public long writePosition() {
+        return writePosition;
+    }
+
+    /**
+     * Oldest position that is safe to read; the guard band behind it may be mid-overwrite.
+     */
+    public long oldestPosition() {
+        return Math.max(0, writePosition - capacity + guard);
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    /**
+     * Forgets everything recorded so far, e.g. when switching stations.
+     */
+    public synchronized void reset() {
+        writePosition = 0;
+        endPosition = -1;
+        indexCount = 0;
+        indexHead = 0;
+        contentType = null;
+        notifyAll();
+    }
+
+    /**
+     * Marks the end of the recorded station, e.g. when its connection drops.
+     * Readers get end of stream once they have played everything up to here.
+     * The next {@link #write} or {@link #reset} makes the ring live again.
+     */
+    public synchronized void markEnded() {
+        endPosition = writePosition;
+        notifyAll();
+    }
+
+    /**
+     * Appends raw stream bytes. Only the capture thread may call this.
+     */
+    public void write(byte[] src, int off, int len) {
+        if (len > capacity) {
+            // Only the tail survives anyway; account for the skipped bytes up front
+            synchronized (this) {
+                writePosition += len - capacity;
+            }
+            off += len - capacity;
+            len = capacity;
+        }
+
+        while (len > 0) {
+            int n = Math.min(len, guard);
+            long pos = writePosition;
+            int start = (int) (pos % capacity);
+            int first = Math.min(n, capacity - start);
+            mapped.put(start, src, off, first);
+            if (first < n) {
+                mapped.put(0, src, off + first, n - first);
+            }
+
+            synchronized (this) {
+                writePosition = pos + n;
+                endPosition = -1;
+                index(pos);
+                notifyAll();
+            }
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void index(long pos) {
+        long now = System.currentTimeMillis();
+        int last = (indexHead - 1 + indexTimes.length) % indexTimes.length;
+        if (indexCount > 0 && now - indexTimes[last] < INDEX_INTERVAL_MS) return;
+
+        // Drop entries the ring no longer holds, keeping one at or before the oldest data
+        long oldest = oldestPosition();
+        while (indexCount > 1 && indexPositions[slot(indexCount - 2)] <= oldest) {
+            indexCount--;
+        }
+        if (indexCount == indexTimes.length) growIndex();
+
+        indexTimes[indexHead] = now;
+        indexPositions[indexHead] = pos;
+        indexHead = (indexHead + 1) % indexTimes.length;
+        indexCount++;
+    }
+
+    // Slot of the i-th newest index entry, 0 being the newest
+    private int slot(int i) {
+        return (indexHead - 1 - i + 2 * indexTimes.length) % indexTimes.length;
+    }
+
+    private void growIndex() {
+        long[] times = new long[indexTimes.length * 2];
+        long[] positions = new long[times.length];
+        for (int i = 0; i < indexCount; i++) {
+            int slot = slot(indexCount - 1 - i);
+            times[i] = indexTimes[slot];
+            positions[i] = indexPositions[slot];
+        }
+        indexTimes = times;
+        indexPositions = positions;
+        indexHead = indexCount;
+    }
+
+    /**
+     * Position recorded at or just before the given wall-clock time,
+     * clamped to what the ring still holds.
+     */
+    public synchronized long positionAt(long epochMillis) {
+        long oldest = oldestPosition();
+        for (int i = 0; i < indexCount; i++) {
+            int slot = slot(i);
+            if (indexTimes[slot] <= epochMillis || indexPositions[slot] <= oldest) {
+                return Math.max(oldest, indexPositions[slot]);
+            }
+        }
+        return oldest;
+    }
+
+    /**
+     * Wall-clock time at which {@code position} was recorded. Positions older than
+     * the index get the oldest indexed time; now if nothing was recorded yet.
+     */
+    public synchronized long timeAt(long position) {
+        if (indexCount == 0) return System.currentTimeMillis();
+        for (int i = 0; i < indexCount; i++) {
+            int slot = slot(i);
+            if (indexPositions[slot] <= position) return indexTimes[slot];
+        }
+        return indexTimes[slot(indexCount - 1)];
+    }
+
+    /**
+     * Blocking stream of recorded bytes starting at {@code position}. Reads wait
+     * for the capture thread when caught up with live, and end once the station
+     * has ended; a reader left so far behind that its data was overwritten
+     * resumes at the oldest data still held.
+     */
+    public Reader openReader(long position) {
+        return new Reader(position);
+    }
+
+    /**
+     * Copies the recorded bytes in [from, to) to {@code target} without
+     * passing them through the Java heap.
+     */
+    public void export(long from, long to, Path target) throws IOException {
+        from = Math.max(from, oldestPosition());
+        to = Math.min(to, writePosition);
+        if (to <= from) throw new IOException("Nothing recorded in that range");
+
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long pos = from;
+            while (pos < to) {
+                long offset = pos % capacity;
+                long count = Math.min(to - pos, capacity - offset);
+                long sent = channel.transferTo(offset, count, out);
+                if (sent <= 0) throw new IOException("Export stalled at " + pos);
+                pos += sent;
+            }
+        }
+
+        // Live capture keeps running during the export
+        if (from < oldestPosition()) {
+            throw new IOException("Segment was overwritten while exporting");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        channel.close();
+    }
+
+    public class Reader extends InputStream {
+
+        private volatile long position;
+        private volatile boolean readerClosed = false;
+        private long limit = Long.MAX_VALUE;
+        private InputStream continuation;
+
+        private Reader(long position) {
+            this.position = position;
+        }
+
+        public long position() {
+            return position;
+        }
+
+        /**
+         * Makes the ring end at {@code end} for this reader, after which it reads
+         * from {@code continuation} (or ends, if null). Used when another station
+         * takes over the ring while this one is still being faded out: its capture
+         * stops writing and hands the live stream to the reader instead.
+         * The reader closes {@code continuation} when it is closed.
+         */
+        public void endAt(long end, InputStream continuation) {
+            synchronized (TimeshiftBuffer.this) {
+                this.limit = end;
+                this.continuation = continuation;
+                TimeshiftBuffer.this.notifyAll();
+            }
+            if (readerClosed) closeContinuation();
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] dst, int off, int len) throws IOException {
+            if (len == 0) return 0;
+
+            InputStream next;
+            long end;
+            synchronized (TimeshiftBuffer.this) {
+                while (position >= writePosition && position < limit && endPosition < 0
+                        && !readerClosed && !closed) {
+                    try {
+                        TimeshiftBuffer.this.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while waiting for stream data");
+                    }
+                }
+                next = continuation;
+                end = limit;
+            }
+            if (readerClosed || closed) return -1;
+
+            while (true) {
+                // Fell out of the ring; skip a little further so we don't lap again immediately
+                if (position < oldestPosition()) {
+                    position = Math.min(end, oldestPosition() + capacity / 16);
+                }
+                if (position >= end) {
+                    return next != null ? next.read(dst, off, len) : -1;
+                }
+                // Caught up with a station that has ended
+                long live = writePosition;
+                if (position >= live) return -1;
+
+                int n = (int) Math.min(len, Math.min(live, end) - position);
+                int start = (int) (position % capacity);
+                int first = Math.min(n, capacity - start);
+                mapped.get(start, dst, off, first);
+                if (first < n) {
+                    mapped.get(0, dst, off + first, n - first);
+                }
+                // The capture may have lapped us while copying; its unpublished chunk is inside the guard.
+                // The fence keeps the copy from being reordered past the re-check.
+                VarHandle.acquireFence();
+                if (position < oldestPosition()) continue;
+                position += n;
+                return n;
+            }
+        }
+
+        @Override
+        public int available() {
+            long end;
+            synchronized (TimeshiftBuffer.this) {
+                end = Math.min(writePosition, limit);
+            }
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(0, end - position));
+        }
+
+        @Override
+        public void close() {
+            readerClosed = true;
+            synchronized (TimeshiftBuffer.this) {
+                TimeshiftBuffer.this.notifyAll();
+            }
+            closeContinuation();
+        }
+
+        private void closeContinuation() {
+            InputStream in;
+            synchronized (TimeshiftBuffer.this) {
+                in = continuation;
+                continuation = null;
+            }
+            if (in != null) {
+                try { in.close(); } catch (IOException ignored) {}
+            }
+        }
+    }
+}
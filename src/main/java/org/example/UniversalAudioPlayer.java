@@ -4,29 +4,102 @@ import javafx.application.Platform;
 
 import javax.sound.sampled.*;
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.net.URL;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 
 /**
  * Universal audio player using pure Java Sound SPI.
  * Supports MP3, OGG Vorbis, FLAC — no VLC or external installs needed.
  * Feeds audio data to AudioProcessor for synced visualization.
+ *
+ * The output device is opened once in its own format ({@link AudioOutput})
+ * and every station is converted to it, so switching stations never reopens
+ * the line.
+ *
+ * With a {@link TimeshiftBuffer} attached, a capture thread records the raw
+ * stream into the ring and playback decodes from the ring instead of the
+ * socket, which allows pausing live radio, rewinding and exporting clips.
+ *
+ * With crossfade enabled, changing stations doesn't stop the current one:
+ * it keeps playing while the next connects and prebuffers, then the two are
+ * mixed with an equal-power fade ({@link CrossfadeMixer}) through the same
+ * output line.
  */
 public class UniversalAudioPlayer {
 
-    private SourceDataLine javaLine;
+    // Ogg and FLAC can't be decoded from the middle of a stream without their headers
+    private static final int STREAM_HEAD_BYTES = 16384;
+    // Decoded audio the next station must have queued before the fade starts
+    private static final int PREBUFFER_MILLIS = 250;
+    private static final int PREBUFFER_CAPACITY_MILLIS = 2000;
+    // A ready next station cuts off an outgoing one that has stopped writing, e.g. stalled on
+    // its socket, once the device has less than this left to play, rather than wait out the fade
+    private static final long STALL_MARGIN_MILLIS = 40;
+    // How often a waiting next station checks for that
+    private static final long STALL_POLL_MILLIS = 10;
+    // How long a replaced capture gets to finish its current read before it's cut off
+    private static final long HANDOFF_TIMEOUT_MS = 2000;
+
+    private final AudioOutput output;
+    private volatile Resampler.Quality resamplerQuality = Resampler.Quality.MEDIUM;
     private volatile boolean running = false;
-    private Thread playerThread;
+    private volatile boolean paused = false;
+    private volatile int crossfadeMillis = 0;
+
+    // The current station, and the previous one while it is being faded out
+    private volatile Deck deck;
+    private volatile Deck fadingOut;
+    // Held around every device write, so a deck that was cut off can't write after its successor
+    private final Object writeLock = new Object();
 
     private volatile double volume = 0.5;
 
     private Consumer<String> onStatusChange;
     private Consumer<String> onError;
+    private Consumer<Long> onFirstAudio;
+    private Consumer<String> onStreamTitle;
+    private volatile Executor callbackExecutor = Platform::runLater;
 
     private String currentStationName = "";
     private AudioProcessor audioProcessor;
 
+    private StreamResolver resolver = new StreamResolver();
+
+    private volatile TimeshiftBuffer timeshift;
+    private volatile Capture capture;
+    private final Object pauseLock = new Object();
+
+    private interface StreamOpener {
+        InputStream open(Deck deck) throws IOException;
+    }
+
+    public UniversalAudioPlayer() {
+        this(new AudioOutput());
+    }
+
+    /**
+     * Plays through {@code output}, e.g. one backed by a {@code SimulatedOutputLine}.
+     */
+    public UniversalAudioPlayer(AudioOutput output) {
+        this.output = output;
+    }
+
+    /**
+     * Where the status, error and first-audio callbacks run; the JavaFX thread by default.
+     */
+    public void setCallbackExecutor(Executor executor) {
+        this.callbackExecutor = executor;
+    }
+
     public void setOnStatusChange(Consumer<String> callback) {
         this.onStatusChange = callback;
     }
@@ -35,40 +108,195 @@ public class UniversalAudioPlayer {
         this.onError = callback;
     }
 
+    /**
+     * Called once per play with the milliseconds from {@link #play} to the first audio written.
+     * With crossfade that is when the new station starts fading in.
+     */
+    public void setOnFirstAudio(Consumer<Long> callback) {
+        this.onFirstAudio = callback;
+    }
+
+    /**
+     * Called with the ICY StreamTitle (usually "Artist - Song") of the current station as it changes.
+     */
+    public void setOnStreamTitle(Consumer<String> callback) {
+        this.onStreamTitle = callback;
+    }
+
     public void setAudioProcessor(AudioProcessor processor) {
         this.audioProcessor = processor;
     }
 
+    /**
+     * Resolver used to turn station URLs into streams; share one to share its cache.
+     */
+    public void setStreamResolver(StreamResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    public StreamResolver getStreamResolver() {
+        return resolver;
+    }
+
+    /**
+     * Enables timeshift for subsequent plays. Pass null to play straight from the socket.
+     */
+    public void setTimeshiftBuffer(TimeshiftBuffer buffer) {
+        this.timeshift = buffer;
+    }
+
+    /**
+     * Length of the fade between stations. 0 (the default) stops the current
+     * station before connecting to the next.
+     */
+    public void setCrossfadeMillis(int millis) {
+        this.crossfadeMillis = Math.max(0, millis);
+    }
+
+    public int getCrossfadeMillis() {
+        return crossfadeMillis;
+    }
+
     public void play(String url, String stationName) {
-        stop();
+        long requestedAt = System.nanoTime();
+        TimeshiftBuffer buffer = timeshift;
+
+        Deck outgoing = deck;
+        boolean crossfade = crossfadeMillis > 0 && running && !paused
+                && outgoing != null && outgoing.audible && fadingOut == null && output.isOpen()
+                && (buffer != null || capture == null);
+        if (!crossfade) {
+            stop();
+        }
         currentStationName = stationName;
-        playWithJavaSound(url);
+        running = true;
+
+        StreamOpener opener;
+        if (buffer != null) {
+            // While fading, the old capture keeps recording until the new one connects
+            Capture next = crossfade
+                    ? new Capture(url, buffer, capture, outgoing.reader)
+                    : new Capture(url, buffer, null, null);
+            capture = next;
+            next.start();
+            opener = d -> openTimeshiftReader(d, next, -1);
+        } else {
+            opener = d -> watchTitles(resolver.open(url).stream(), () -> deck == d);
+        }
+
+        Deck incoming = new Deck(opener, requestedAt, crossfade);
+        deck = incoming;
+        if (crossfade) {
+            fadingOut = outgoing;
+            outgoing.incoming = incoming;
+        }
+        incoming.start();
     }
 
     public void stop() {
         running = false;
-        Thread threadToJoin = playerThread;
-        playerThread = null;
+        stopDecks();
+        stopCapture();
+        currentStationName = "";
+    }
 
-        if (javaLine != null) {
-            try {
-                javaLine.stop();
-                javaLine.close();
-            } catch (Exception ignored) {}
-            javaLine = null;
-        }
-        if (threadToJoin != null) {
-            threadToJoin.interrupt();
-            try{
-                threadToJoin.join(2000);
+    /**
+     * Loads the decoder SPIs and the sound system ahead of the first play, so
+     * pressing Play only pays for opening the line. The device itself stays
+     * free until something plays. Safe to call from a background thread.
+     */
+    public void prepare() {
+        try {
+            // Probing an empty stream makes AudioSystem load every file reader
+            AudioSystem.getAudioInputStream(new ByteArrayInputStream(new byte[64]));
+        } catch (Exception ignored) {}
+        AudioSystem.getTargetEncodings(AudioFormat.Encoding.PCM_SIGNED);
+
+        output.preload();
+    }
 
-            } catch (InterruptedException ignored) {
-                Thread.currentThread().interrupt();
+    /**
+     * Stops playback and releases the audio device. Call when the application exits.
+     */
+    public void close() {
+        stop();
+        output.close();
+    }
+
+    /**
+     * Resampler quality used for stations whose rate differs from the device's.
+     * Takes effect from the next station or seek.
+     */
+    public void setResamplerQuality(Resampler.Quality quality) {
+        this.resamplerQuality = quality;
+    }
+
+    /**
+     * Holds playback. With timeshift the station keeps recording, so
+     * {@link #resume()} continues exactly where it left off.
+     */
+    public void pause() {
+        if (!running) return;
+        paused = true;
+        fireStatus("Paused");
+    }
+
+    public void resume() {
+        synchronized (pauseLock) {
+            paused = false;
+            pauseLock.notifyAll();
         }
     }
 
-    currentStationName = "";
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Moves playback {@code seconds} further back in the recorded stream.
+     */
+    public void rewind(int seconds) {
+        if (!canTimeshift()) return;
+        long sessionStart = capture.sessionStart;
+        long playingAt = timeshift.timeAt(deck.reader.position());
+        long target = timeshift.positionAt(playingAt - seconds * 1000L);
+        // Never rewind into the station that played before this one
+        seekTo(Math.max(sessionStart, target));
+    }
+
+    /**
+     * Jumps back to the live edge of the station.
+     */
+    public void goLive() {
+        if (!canTimeshift()) return;
+        seekTo(timeshift.writePosition());
+    }
+
+    /**
+     * How far playback lags the live stream, in milliseconds.
+     */
+    public long getTimeshiftDelayMillis() {
+        if (!canTimeshift()) return 0;
+        return Math.max(0, System.currentTimeMillis() - timeshift.timeAt(deck.reader.position()));
+    }
+
+    /**
+     * Saves the last {@code seconds} of recorded, still compressed, audio to {@code target}.
+     */
+    public void exportLast(int seconds, Path target) throws IOException {
+        Capture recording = capture;
+        if (timeshift == null) throw new IOException("Timeshift is not enabled");
+        if (recording == null || recording.sessionStart < 0) throw new IOException("Nothing recorded yet");
+        long to = timeshift.writePosition();
+        long from = timeshift.positionAt(System.currentTimeMillis() - seconds * 1000L);
+        timeshift.export(Math.max(recording.sessionStart, from), to, target);
+    }
 
+    /**
+     * MIME type of the stream being recorded, for naming exported clips.
+     */
+    public String getRecordedContentType() {
+        return timeshift != null ? timeshift.getContentType() : null;
     }
 
     public void setVolume(double vol) {
@@ -87,17 +315,198 @@ public class UniversalAudioPlayer {
         return currentStationName;
     }
 
-    private void playWithJavaSound(String url) {
-        running = true;
-        fireStatus("Connecting...");
+    private boolean canTimeshift() {
+        Deck current = deck;
+        return running && timeshift != null && capture != null
+                && current != null && current.reader != null;
+    }
+
+    private void seekTo(long position) {
+        Capture recording = capture;
+        stopDecks();
+        paused = false;
+        fireStatus("Buffering...");
+
+        Deck next = new Deck(d -> openTimeshiftReader(d, recording, position), 0, false);
+        deck = next;
+        next.start();
+    }
+
+    /**
+     * Opens the ring at {@code position}, or at the start of the capture's station if negative.
+     */
+    private InputStream openTimeshiftReader(Deck reading, Capture recording, long position) throws IOException {
+        long sessionStart = recording.awaitStart();
+        if (position < 0) position = sessionStart;
+
+        TimeshiftBuffer.Reader reader = recording.buffer.openReader(position);
+        reading.reader = reader;
+        if (!reading.active) reader.close();
+
+        if (position == sessionStart || !needsStreamHead(recording.buffer.getContentType())) {
+            return reader;
+        }
+        // Replay the container headers so the decoder can pick up mid-stream
+        byte[] head = Arrays.copyOf(recording.streamHead, recording.streamHeadLength);
+        return new SequenceInputStream(new ByteArrayInputStream(head), reader);
+    }
+
+    private static boolean needsStreamHead(String contentType) {
+        return contentType != null && (contentType.contains("ogg") || contentType.contains("flac"));
+    }
+
+    private void stopCapture() {
+        Capture recording = capture;
+        capture = null;
+        if (recording != null) recording.stop();
+    }
+
+    private void stopDecks() {
+        Deck current = deck;
+        Deck previous = fadingOut;
+        deck = null;
+        fadingOut = null;
+
+        if (current != null) current.halt();
+        if (previous != null) previous.halt();
+        resume();
+
+        // Flushing releases a decoder blocked in write without closing the device
+        output.stop();
+        output.flush();
+        if (current != null) current.join();
+        if (previous != null) previous.join();
+        // Drop anything the old decoder wrote between the flush and exiting
+        output.flush();
+    }
+
+    private void applyVolume(byte[] buffer, int bytesRead) {
+        if (volume >= 0.99) return;
+        for (int i = 0; i < bytesRead - 1; i += 2) {
+            short sample = (short) ((buffer[i] & 0xFF) | (buffer[i + 1] << 8));
+            sample = (short) (sample * volume);
+            buffer[i] = (byte) (sample & 0xFF);
+            buffer[i + 1] = (byte) ((sample >> 8) & 0xFF);
+        }
+    }
+
+    private void fireStatus(String status) {
+        if (onStatusChange != null) {
+            callbackExecutor.execute(() -> onStatusChange.accept(status));
+        }
+    }
+
+    // A station fading out or being replaced keeps quiet about its titles
+    private InputStream watchTitles(InputStream in, BooleanSupplier current) {
+        if (in instanceof IcyMetadataInputStream icy) {
+            icy.setOnTitle(title -> {
+                if (current.getAsBoolean() && onStreamTitle != null) {
+                    callbackExecutor.execute(() -> onStreamTitle.accept(title));
+                }
+            });
+        }
+        return in;
+    }
+
+    private void fireError(String error) {
+        if (onError != null) {
+            callbackExecutor.execute(() -> onError.accept(error));
+        }
+    }
+
+    /**
+     * One station decoding to the output. A deck that fades in decodes into its
+     * prebuffer instead; the deck it replaces takes from that prebuffer, mixes
+     * it into its own audio as the fade advances, and when the fade is done
+     * releases the prebuffer, after which the new deck writes to the device itself.
+     */
+    private final class Deck implements Runnable {
+
+        private final StreamOpener opener;
+        private final Thread thread;
+        private final PcmFifo prebuffer;
+        private final int readyBytes;
+
+        private volatile boolean active = true;
+        private volatile boolean audible = false;
+        private volatile boolean ended = false;
+        private volatile long requestedAt;
+        private volatile TimeshiftBuffer.Reader reader;
+        private volatile InputStream stream;
+        private volatile Deck incoming;
+        private volatile boolean handedOver = false;
+
+        // Only touched by this deck's thread
+        private boolean fading = false;
+        private long fadeFrame = 0;
+        private long fadeFrames = 0;
+        private byte[] mixBuffer = new byte[8192];
+
+        Deck(StreamOpener opener, long requestedAt, boolean fadesIn) {
+            this.opener = opener;
+            this.requestedAt = requestedAt;
+
+            // Fading in implies something is playing, so the output is open
+            AudioFormat format = fadesIn ? output.getFormat() : null;
+            if (format != null) {
+                int bytesPerSecond = (int) format.getSampleRate() * format.getFrameSize();
+                this.prebuffer = new PcmFifo(bytesPerSecond / 1000 * PREBUFFER_CAPACITY_MILLIS);
+                this.readyBytes = bytesPerSecond / 1000 * PREBUFFER_MILLIS;
+            } else {
+                this.prebuffer = null;
+                this.readyBytes = 0;
+            }
+
+            this.thread = new Thread(this);
+            thread.setDaemon(true);
+            thread.setName("JavaSound-Player");
+        }
+
+        void start() {
+            fireStatus("Connecting...");
+            thread.start();
+        }
+
+        /**
+         * Stops decoding and unblocks the thread; the caller flushes the output and joins.
+         */
+        void halt() {
+            active = false;
+            TimeshiftBuffer.Reader r = reader;
+            if (r != null) r.close();
+            // Closing the socket is what unblocks a read from a stalled station
+            InputStream in = stream;
+            if (in != null) {
+                try { in.close(); } catch (IOException ignored) {}
+            }
+            if (prebuffer != null) prebuffer.release();
+            thread.interrupt();
+        }
+
+        void join() {
+            try {
+                thread.join(2000);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+        }
 
-        playerThread = new Thread(() -> {
+        /**
+         * Enough decoded to start the fade, or all there is.
+         */
+        boolean isReady() {
+            return prebuffer != null && (ended || prebuffer.available() >= readyBytes);
+        }
+
+        @Override
+        public void run() {
             AudioInputStream rawStream = null;
             AudioInputStream decodedStream = null;
 
             try {
-                URL streamUrl = new URL(url);
-                BufferedInputStream buffered = new BufferedInputStream(streamUrl.openStream(), 16384);
+                stream = opener.open(this);
+                if (!active) stream.close();
+                BufferedInputStream buffered = new BufferedInputStream(stream, 16384);
                 rawStream = AudioSystem.getAudioInputStream(buffered);
 
                 AudioFormat sourceFormat = rawStream.getFormat();
@@ -114,77 +523,384 @@ public class UniversalAudioPlayer {
 
                 decodedStream = AudioSystem.getAudioInputStream(decodedFormat, rawStream);
 
-                DataLine.Info lineInfo = new DataLine.Info(SourceDataLine.class, decodedFormat);
-                javaLine = (SourceDataLine) AudioSystem.getLine(lineInfo);
-                javaLine.open(decodedFormat);
-                javaLine.start();
+                AudioFormat outputFormat = output.open();
+                PcmConverter converter = new PcmConverter(decodedFormat, outputFormat, resamplerQuality);
+                if (prebuffer == null) output.start();
 
                 fireStatus("Playing");
 
                 byte[] buffer = new byte[4096];
                 int bytesRead;
-
-                while (running && (bytesRead = decodedStream.read(buffer, 0, buffer.length)) != -1) {
-                    // Feed audio data to visualizer before volume is applied
-                    if (audioProcessor != null) {
-                        audioProcessor.feedData(buffer, bytesRead);
+                boolean prebuffering = prebuffer != null;
+
+                while (running && active && (bytesRead = decodedStream.read(buffer, 0, buffer.length)) != -1) {
+                    int converted = converter.convert(buffer, bytesRead);
+                    byte[] pcm = converter.buffer();
+
+                    if (prebuffering) {
+                        if (queue(pcm, converted)) continue;
+                        // Released: either stopped, or handed the device by the outgoing deck
+                        if (!active) break;
+                        playPrebuffer();
+                        prebuffering = false;
                     }
 
-                    applyVolume(buffer, bytesRead);
-                    javaLine.write(buffer, 0, bytesRead);
+                    if (!writeToOutput(pcm, converted, outputFormat)) break;
                 }
+                ended = true;
 
-                if (running) {
+                // A short stream can end before the fade even starts
+                if (prebuffering && running && active) {
+                    while (!prebuffer.awaitRelease(STALL_POLL_MILLIS)) {
+                        takeOverIfStalled();
+                    }
+                    playPrebuffer();
+                }
+
+                if (running && active && !handedOver) {
                     fireStatus("Stream ended");
                 }
 
             } catch (UnsupportedAudioFileException e) {
-                fireError("Unsupported format: " + e.getMessage());
+                reportError("Unsupported format: " + e.getMessage());
             } catch (IOException e) {
                 if (running) {
-                    fireError("Stream error: " + e.getMessage());
+                    reportError("Stream error: " + e.getMessage());
                 }
             } catch (LineUnavailableException e) {
-                fireError("Audio device unavailable: " + e.getMessage());
+                reportError("Audio device unavailable: " + e.getMessage());
             } catch (Exception e) {
-                fireError("Playback error: " + e.getMessage());
+                reportError("Playback error: " + e.getMessage());
             } finally {
                 try { if (decodedStream != null) decodedStream.close(); } catch (Exception ignored) {}
                 try { if (rawStream != null) rawStream.close(); } catch (Exception ignored) {}
-                if (javaLine != null) {
-                    javaLine.drain();
-                    javaLine.stop();
-                    javaLine.close();
-                    javaLine = null;
+                finish();
+            }
+        }
+
+        /**
+         * Writes one block to the device, mixing in the incoming station while fading.
+         *
+         * @return false once the fade is complete and the device belongs to the incoming deck
+         */
+        private boolean writeToOutput(byte[] pcm, int length, AudioFormat format) {
+            // Halted while blocked in a read, e.g. cut off by the next station
+            if (!active) return false;
+
+            Deck next = incoming;
+            boolean mixing = next != null && next.active && (fading || next.isReady());
+
+            if (mixing) {
+                if (!fading) {
+                    fading = true;
+                    fadeFrames = Math.max(1, (long) crossfadeMillis * (long) format.getSampleRate() / 1000);
                 }
-                running = false;
+                if (mixBuffer.length < length) mixBuffer = new byte[length];
+                // An underrun of the incoming station fades in silence rather than stalling this one
+                int taken = next.prebuffer.take(mixBuffer, 0, length);
+                Arrays.fill(mixBuffer, taken, length, (byte) 0);
+                fadeFrame = CrossfadeMixer.mix(pcm, mixBuffer, length, format.getChannels(), fadeFrame, fadeFrames);
             }
-        });
 
-        playerThread.setDaemon(true);
-        playerThread.setName("JavaSound-Player");
-        playerThread.start();
-    }
+            emit(pcm, length);
 
-    private void applyVolume(byte[] buffer, int bytesRead) {
-        if (volume >= 0.99) return;
-        for (int i = 0; i < bytesRead - 1; i += 2) {
-            short sample = (short) ((buffer[i] & 0xFF) | (buffer[i + 1] << 8));
-            sample = (short) (sample * volume);
-            buffer[i] = (byte) (sample & 0xFF);
-            buffer[i + 1] = (byte) ((sample >> 8) & 0xFF);
+            if (mixing) {
+                next.firstAudioWritten();
+                if (fadeFrame >= fadeFrames) {
+                    handOver(next);
+                    return false;
+                }
+            } else {
+                firstAudioWritten();
+            }
+
+            if (paused) waitWhilePaused();
+            return true;
         }
-    }
 
-    private void fireStatus(String status) {
-        if (onStatusChange != null) {
-            Platform.runLater(() -> onStatusChange.accept(status));
+        /**
+         * Queues a block for the outgoing deck to mix in, taking over if it has stalled.
+         *
+         * @return false once the prebuffer is released and this deck should write to the device itself
+         */
+        private boolean queue(byte[] pcm, int length) throws InterruptedException {
+            // The outgoing deck makes room as it writes, so a full prebuffer may mean it stalled
+            while (!prebuffer.offer(pcm, 0, length, STALL_POLL_MILLIS)) {
+                if (prebuffer.isReleased()) return false;
+                takeOverIfStalled();
+            }
+            takeOverIfStalled();
+            return true;
+        }
+
+        /**
+         * Once this deck is ready and the device has all but played out what the
+         * deck it replaces wrote, halts that deck and takes the device over without
+         * finishing the fade. Otherwise a stalled station would hold the new one
+         * back until its read timed out. A healthy outgoing deck keeps the device
+         * buffer full, so this only triggers when it has stopped feeding it.
+         */
+        private void takeOverIfStalled() {
+            Deck previous = fadingOut;
+            if (previous == null || previous.incoming != this || paused || !isReady()) return;
+            if (output.bufferedMillis() >= STALL_MARGIN_MILLIS) return;
+            previous.halt();
+            // Wait for a write already under way; after that the halted deck skips its writes
+            synchronized (writeLock) {
+                previous.handOver(this);
+            }
+        }
+
+        /**
+         * Plays what is left in the prebuffer once this deck owns the device.
+         */
+        private void playPrebuffer() {
+            int n;
+            while (active && (n = prebuffer.take(mixBuffer, 0, mixBuffer.length)) > 0) {
+                emit(mixBuffer, n);
+                firstAudioWritten();
+            }
+        }
+
+        private void emit(byte[] pcm, int length) {
+            // Feed audio data to visualizer before volume is applied
+            if (audioProcessor != null) {
+                audioProcessor.feedData(pcm, length);
+            }
+            applyVolume(pcm, length);
+            synchronized (writeLock) {
+                // Cut off by the next station while this block was being prepared
+                if (!active) return;
+                output.write(pcm, 0, length);
+            }
+            audible = true;
+        }
+
+        private void handOver(Deck next) {
+            handedOver = true;
+            incoming = null;
+            if (fadingOut == this) fadingOut = null;
+            next.prebuffer.release();
+        }
+
+        /**
+         * Settles what happens after this deck stops on its own (not through {@link #halt}).
+         */
+        private void finish() {
+            if (!active || handedOver) return;
+
+            Deck next = incoming;
+            if (next != null && next.active) {
+                // This station ended before the fade did; the next one carries on alone
+                handOver(next);
+                return;
+            }
+
+            Deck previous = fadingOut;
+            if (previous != null && previous.incoming == this) {
+                // Never took over from the old station; don't leave it playing
+                fadingOut = null;
+                previous.incoming = null;
+                previous.active = false;
+                output.flush();
+            }
+
+            // A seek or stop flushes the output itself; only drain a stream that ended on its own
+            output.drain();
+            running = false;
+        }
+
+        private void waitWhilePaused() {
+            output.stop();
+            synchronized (pauseLock) {
+                while (paused && active) {
+                    try {
+                        pauseLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+            if (active) {
+                output.start();
+                fireStatus(reader != null ? "Playing (timeshift)" : "Playing");
+            }
+        }
+
+        private void firstAudioWritten() {
+            long at = requestedAt;
+            if (at == 0) return;
+            requestedAt = 0;
+            long latencyMs = (System.nanoTime() - at) / 1_000_000;
+            if (onFirstAudio != null) {
+                callbackExecutor.execute(() -> onFirstAudio.accept(latencyMs));
+            }
+        }
+
+        private void reportError(String error) {
+            // The old station of a crossfade goes quietly
+            if (active && incoming == null) fireError(error);
         }
     }
 
-    private void fireError(String error) {
-        if (onError != null) {
-            Platform.runLater(() -> onError.accept(error));
+    /**
+     * Records one station into the timeshift ring.
+     *
+     * A capture replacing one that is still being faded out connects first and
+     * only then takes the ring over: the previous capture stops writing and hands
+     * its live stream to the outgoing station's reader, which plays the rest of
+     * the fade straight from the socket.
+     */
+    private final class Capture implements Runnable {
+
+        private final String url;
+        private final TimeshiftBuffer buffer;
+        private final Thread thread;
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+        private final byte[] streamHead = new byte[STREAM_HEAD_BYTES];
+
+        private volatile int streamHeadLength = 0;
+        private volatile long sessionStart = -1;
+        private volatile boolean active = true;
+        private volatile boolean handedOff = false;
+        private volatile InputStream stream;
+        private volatile TimeshiftBuffer.Reader handOffTo;
+        private volatile IOException failure;
+        // Dropped once handed off, so captures don't chain up across station changes
+        private volatile Capture previous;
+        private volatile TimeshiftBuffer.Reader previousReader;
+
+        Capture(String url, TimeshiftBuffer buffer, Capture previous, TimeshiftBuffer.Reader previousReader) {
+            this.url = url;
+            this.buffer = buffer;
+            this.previous = previous;
+            this.previousReader = previousReader;
+            this.thread = new Thread(this);
+            thread.setDaemon(true);
+            thread.setName("Timeshift-Capture");
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        /**
+         * Ring position where this station starts, once connected.
+         */
+        long awaitStart() throws IOException {
+            try {
+                started.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while connecting");
+            }
+            if (sessionStart < 0) {
+                throw failure != null ? failure : new IOException("Stream closed");
+            }
+            return sessionStart;
+        }
+
+        @Override
+        public void run() {
+            InputStream in = null;
+            try {
+                StreamResolver.ResolvedStream resolved = resolver.open(url);
+                in = watchTitles(resolved.stream(), () -> capture == this);
+                stream = in;
+                if (!active) return;
+
+                Capture replaced = previous;
+                if (replaced != null) {
+                    replaced.handOff(previousReader);
+                    previous = null;
+                    previousReader = null;
+                } else {
+                    buffer.reset();
+                }
+                buffer.setContentType(resolved.contentType());
+                sessionStart = buffer.writePosition();
+                started.countDown();
+
+                byte[] chunk = new byte[8192];
+                while (active) {
+                    TimeshiftBuffer.Reader target = handOffTo;
+                    if (target != null) {
+                        stream = null;
+                        handedOff = true;
+                        target.endAt(buffer.writePosition(), in);
+                        return;
+                    }
+
+                    int bytesRead = in.read(chunk, 0, chunk.length);
+                    if (bytesRead == -1) break;
+
+                    int headRoom = STREAM_HEAD_BYTES - streamHeadLength;
+                    if (headRoom > 0) {
+                        int n = Math.min(headRoom, bytesRead);
+                        System.arraycopy(chunk, 0, streamHead, streamHeadLength, n);
+                        streamHeadLength += n;
+                    }
+                    buffer.write(chunk, 0, bytesRead);
+                }
+            } catch (IOException e) {
+                failure = e;
+                // Before the ring is ours the deck reports it; after, the deck just sees the recording end
+                if (active && sessionStart >= 0) {
+                    fireError("Stream error: " + e.getMessage());
+                }
+            } finally {
+                // Let the deck play out what was recorded and then end, unless the next capture took over
+                if (sessionStart >= 0 && !handedOff && handOffTo == null) {
+                    buffer.markEnded();
+                }
+                started.countDown();
+                if (!handedOff) {
+                    stream = null;
+                    try { if (in != null) in.close(); } catch (Exception ignored) {}
+                }
+                released.countDown();
+            }
+        }
+
+        /**
+         * Stops writing to the ring, giving the live stream to {@code reader} so it
+         * can keep playing past the last recorded byte. Waits for the read in progress.
+         */
+        private void handOff(TimeshiftBuffer.Reader reader) {
+            if (reader == null) {
+                stop();
+                return;
+            }
+            handOffTo = reader;
+            boolean done;
+            try {
+                done = released.await(HANDOFF_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                done = false;
+            }
+            if (!done) stop();
+            if (!handedOff) reader.endAt(buffer.writePosition(), null);
+        }
+
+        void stop() {
+            active = false;
+            Capture replaced = previous;
+            if (replaced != null) replaced.stop();
+
+            // Closing the socket is what actually unblocks the capture read
+            InputStream in = stream;
+            if (in != null) {
+                try { in.close(); } catch (Exception ignored) {}
+            }
+            thread.interrupt();
+            try {
+                thread.join(2000);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
         }
     }
-}
\ No newline at end of file
+}
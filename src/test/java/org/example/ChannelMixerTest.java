@@ -0,0 +1,52 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ChannelMixerTest {
+
+    // FL FR FC LFE BL BR; centre and surrounds at -3 dB, normalised so nothing clips
+    private static final float NORM = 1f / (1f + 2 * 0.7071f);
+
+    @Test
+    void monoGoesToBothSides() {
+        float[] out = new float[6];
+        ChannelMixer.mix(new float[] {0.1f, -0.2f, 0.3f}, 3, 1, out, 2);
+        assertArrayEquals(new float[] {0.1f, 0.1f, -0.2f, -0.2f, 0.3f, 0.3f}, out);
+    }
+
+    @Test
+    void fivePointOneFoldsToStereo() {
+        float[] in = {
+                1, 0, 0, 0, 0, 0,  // front left
+                0, 1, 0, 0, 0, 0,  // front right
+                0, 0, 1, 0, 0, 0,  // centre
+                0, 0, 0, 1, 0, 0,  // LFE, dropped
+                0, 0, 0, 0, 1, 0,  // back left
+                0, 0, 0, 0, 0, 1,  // back right
+        };
+        float[] out = new float[12];
+        ChannelMixer.mix(in, 6, 6, out, 2);
+
+        float[] expected = {
+                NORM, 0,
+                0, NORM,
+                0.7071f * NORM, 0.7071f * NORM,
+                0, 0,
+                0.7071f * NORM, 0,
+                0, 0.7071f * NORM,
+        };
+        assertArrayEquals(expected, out, 1e-6f);
+    }
+
+    @Test
+    void fullScaleFiveOneDoesNotClip() {
+        float[] in = {1, 1, 1, 1, 1, 1};
+        float[] out = new float[2];
+        ChannelMixer.mix(in, 1, 6, out, 2);
+        assertEquals(1f, out[0], 1e-6f, "left");
+        assertEquals(1f, out[1], 1e-6f, "right");
+    }
+}
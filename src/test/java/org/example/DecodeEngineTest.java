@@ -0,0 +1,107 @@
+package org.example;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Decodes a handful of tone stations from {@link FakeStationServer} at once.
+ */
+class DecodeEngineTest {
+
+    private static final int STATIONS = 8;
+
+    private final Map<DecodeSession, AtomicLong> pcmBytes = new ConcurrentHashMap<>();
+
+    private FakeStationServer stations;
+    private DecodeEngine engine;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stations = new FakeStationServer(0);
+        for (int i = 0; i < STATIONS; i++) {
+            stations.addTone("tone" + i, 300 + 100 * i);
+        }
+        stations.start();
+        engine = new DecodeEngine(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.close();
+        stations.close();
+    }
+
+    @Test
+    void everySessionDecodes() throws Exception {
+        List<DecodeSession> sessions = openAll("");
+        UniversalAudioPlayerTest.waitFor(() -> sessions.stream().allMatch(s -> pcmBytes.get(s).get() > 0), 10_000);
+
+        long maxMemory = (long) DecodeSession.maxBuffers() * engine.getBufferPool().bufferSize();
+        for (DecodeSession session : sessions) {
+            assertEquals(DecodeSession.State.DECODING, session.getState(), session.getId() + " " + session.getError());
+            assertTrue(session.getMemoryBytes() > 0, "memory of " + session.getId());
+            assertTrue(session.getQueuedBytes() <= maxMemory, "queued " + session.getQueuedBytes());
+        }
+        assertTrue(engine.getAverageMemoryPerSession() > 0, "average memory");
+    }
+
+    @Test
+    void droppedStationEndsItsSession() throws Exception {
+        List<DecodeSession> sessions = openAll("dropAfter=1");
+        UniversalAudioPlayerTest.waitFor(() -> sessions.stream().allMatch(s ->
+                s.getState() == DecodeSession.State.ENDED || s.getState() == DecodeSession.State.FAILED), 10_000);
+    }
+
+    @Test
+    void closeReturnsEveryBufferAndStopsEveryThread() throws Exception {
+        List<DecodeSession> sessions = openAll("");
+        UniversalAudioPlayerTest.waitFor(() -> sessions.stream().allMatch(s -> pcmBytes.get(s).get() > 0), 10_000);
+
+        engine.close();
+
+        BufferPool pool = engine.getBufferPool();
+        assertEquals(pool.getAllocatedCount(), pool.getFreeCount(), "buffers not returned to the pool");
+        String threads = threadDump();
+        assertFalse(threads.contains("\"Fetch-"), "fetch threads left");
+        assertFalse(threads.contains("\"Decode-Worker-"), "decode workers left");
+    }
+
+    private List<DecodeSession> openAll(String faults) {
+        List<DecodeSession> sessions = new ArrayList<>();
+        for (int i = 0; i < STATIONS; i++) {
+            AtomicLong counter = new AtomicLong();
+            DecodeSession session = engine.open(stations.url("tone" + i, faults), (s, pcm, length) -> counter.addAndGet(length));
+            pcmBytes.put(session, counter);
+            sessions.add(session);
+        }
+        return sessions;
+    }
+
+    // Includes virtual threads, which Thread.getAllStackTraces leaves out
+    private static String threadDump() throws Exception {
+        Path file = Files.createTempDirectory("threads").resolve("dump.json");
+        try {
+            ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class)
+                    .dumpThreads(file.toString(), HotSpotDiagnosticMXBean.ThreadDumpFormat.JSON);
+            return Files.readString(file);
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(file.getParent());
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for one Radio Browser API mirror. Answers
+ * {@code /json/stations/search} and the other {@code /json/stations} listings
+ * with whatever stations were added, typically mounts of a {@link FakeStationServer}.
+ *
+ * A response delay and a failure rate make it a slow or flaky mirror, so
+ * several of them behind {@link RadioBrowserAPI#RadioBrowserAPI(List)}
+ * exercise server failover.
+ */
+public class FakeRadioBrowserServer implements Closeable {
+
+    private final ServerSocket serverSocket;
+    private final List<Station> stations = new CopyOnWriteArrayList<>();
+    private final AtomicLong requests = new AtomicLong();
+    private volatile long responseDelayMillis = 0;
+    private volatile double failureRate = 0;
+    private volatile boolean running = false;
+    private Thread acceptThread;
+
+    private static final class Station {
+        final String uuid;
+        final String name;
+        final String url;
+        final String codec;
+        final int bitrate;
+
+        Station(String uuid, String name, String url, String codec, int bitrate) {
+            this.uuid = uuid;
+            this.name = name;
+            this.url = url;
+            this.codec = codec;
+            this.bitrate = bitrate;
+        }
+    }
+
+    /**
+     * @param port port to listen on at the loopback address, or 0 for any free port
+     */
+    public FakeRadioBrowserServer(int port) throws IOException {
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    public void addStation(String name, String url, String codec, int bitrate) {
+        String uuid = String.format("00000000-0000-0000-0000-%012d", stations.size() + 1);
+        stations.add(new Station(uuid, name, url, codec, bitrate));
+    }
+
+    /**
+     * Lists every mount of {@code server} as a station, with the given fault
+     * parameters appended to the stream URL (null for none).
+     */
+    public void addStations(FakeStationServer server, String faults) {
+        for (String mount : server.getMounts()) {
+            addStation("Fake " + mount, server.url(mount, faults), codecFor(server.getContentType(mount)), 128);
+        }
+    }
+
+    /**
+     * Delay before every response, to play a slow mirror.
+     */
+    public void setResponseDelayMillis(long millis) {
+        this.responseDelayMillis = millis;
+    }
+
+    /**
+     * Share of requests answered with 503, to play a flaky mirror.
+     */
+    public void setFailureRate(double rate) {
+        this.failureRate = rate;
+    }
+
+    public void start() {
+        running = true;
+        acceptThread = new Thread(this::acceptLoop);
+        acceptThread.setDaemon(true);
+        acceptThread.setName("FakeRadioBrowser-Accept");
+        acceptThread.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Base URL in the form {@link RadioBrowserAPI} expects for a server.
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + getPort() + "/json";
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {}
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread.ofVirtual().name("FakeRadioBrowser-Client").start(() -> serve(socket));
+            } catch (IOException e) {
+                if (running) System.err.println("Fake Radio Browser accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        requests.incrementAndGet();
+        try (socket) {
+            FakeStationServer.Request request = FakeStationServer.Request.read(socket.getInputStream());
+            if (request == null) return;
+
+            if (responseDelayMillis > 0) Thread.sleep(responseDelayMillis);
+
+            OutputStream out = socket.getOutputStream();
+            if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                respond(out, 503, "[]");
+            } else if (request.path.startsWith("/json/stations")) {
+                respond(out, 200, toJson(matching(request)));
+            } else {
+                respond(out, 404, "[]");
+            }
+        } catch (IOException ignored) {
+            // Client gave up, e.g. after its timeout
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<Station> matching(FakeStationServer.Request request) {
+        String name = request.query.getOrDefault("name", "").toLowerCase(Locale.ROOT);
+        int limit;
+        try {
+            limit = Integer.parseInt(request.query.getOrDefault("limit", "100000"));
+        } catch (NumberFormatException e) {
+            limit = 100000;
+        }
+
+        List<Station> result = new ArrayList<>();
+        for (Station station : stations) {
+            if (result.size() >= limit) break;
+            if (name.isEmpty() || station.name.toLowerCase(Locale.ROOT).contains(name)) {
+                result.add(station);
+            }
+        }
+        return result;
+    }
+
+    private static void respond(OutputStream out, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        String head = "HTTP/1.1 " + status + (status == 200 ? " OK" : " Error") + "\r\n"
+                + "Content-Type: application/json; charset=utf-8\r\n"
+                + "Content-Length: " + bytes.length + "\r\n"
+                + "Connection: close\r\n\r\n";
+        out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+        out.write(bytes);
+        out.flush();
+    }
+
+    private static String toJson(List<Station> stations) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < stations.size(); i++) {
+            Station s = stations.get(i);
+            if (i > 0) json.append(',');
+            json.append("{\"stationuuid\":").append(quote(s.uuid))
+                    .append(",\"name\":").append(quote(s.name))
+                    .append(",\"url\":").append(quote(s.url))
+                    .append(",\"url_resolved\":").append(quote(s.url))
+                    .append(",\"codec\":").append(quote(s.codec))
+                    .append(",\"bitrate\":").append(s.bitrate)
+                    .append(",\"votes\":0,\"clickcount\":0,\"hls\":0,\"lastcheckok\":1}");
+        }
+        return json.append(']').toString();
+    }
+
+    private static String quote(String value) {
+        StringBuilder out = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) out.append(String.format("\\u%04x", (int) c));
+                    else out.append(c);
+                }
+            }
+        }
+        return out.append('"').toString();
+    }
+
+    static String codecFor(String contentType) {
+        if (contentType == null) return "";
+        if (contentType.contains("mpeg")) return "MP3";
+        if (contentType.contains("ogg")) return "OGG";
+        if (contentType.contains("flac")) return "FLAC";
+        if (contentType.contains("wav")) return "WAV";
+        return "";
+    }
+}
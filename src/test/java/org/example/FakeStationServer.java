@@ -0,0 +1,494 @@
+package org.example;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * In-process Icecast/Shoutcast-style server, so the player can be exercised
+ * without real stations.
+ *
+ * Each mount loops a generated tone (PCM WAV) or a fixture file (MP3, Ogg,
+ * FLAC or WAV) at the stream's real-time byte rate, after an initial burst
+ * like Icecast's burst-on-connect. Clients sending {@code Icy-MetaData: 1}
+ * get a changing StreamTitle every {@code icy-metaint} bytes.
+ *
+ * Faults are picked per request with query parameters on the mount URL, so
+ * one server can serve healthy and broken variants of the same station:
+ * <ul>
+ *   <li>{@code rate=0.5} — serve at half real time (throttled link)</li>
+ *   <li>{@code stallEvery=10&stallMs=3000} — stop sending for 3 s every 10 s</li>
+ *   <li>{@code dropAfter=30} — drop the connection after 30 s</li>
+ *   <li>{@code connectDelay=2000} — wait 2 s before answering (slow mirror)</li>
+ *   <li>{@code status=503} — refuse with that HTTP status</li>
+ *   <li>{@code burst=0} — bytes sent ahead of real time on connect</li>
+ *   <li>{@code icy=1} — answer with a Shoutcast v1 {@code ICY 200 OK} status line</li>
+ * </ul>
+ */
+public class FakeStationServer implements Closeable {
+
+    private static final int BURST_BYTES = 64 * 1024;
+    private static final int META_INTERVAL = 16000;
+    private static final int TITLE_SECONDS = 30;
+    private static final int CHUNK_BYTES = 4096;
+    private static final int TICK_MS = 20;
+    private static final int FALLBACK_BYTE_RATE = 128_000 / 8;
+    private static final AudioFormat TONE_FORMAT =
+            new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, 44100f, 16, 2, 4, 44100f, false);
+
+    private final ServerSocket serverSocket;
+    private final Map<String, Mount> mounts = new ConcurrentHashMap<>();
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final AtomicLong totalConnections = new AtomicLong();
+    private final AtomicLong bytesServed = new AtomicLong();
+    private volatile Map<String, String> defaultFaults = Map.of();
+    private volatile boolean running = false;
+    private Thread acceptThread;
+
+    private static final class Mount {
+        final String name;
+        final String contentType;
+        final byte[] header;
+        final byte[] data;
+        final boolean loop;
+        final long byteRate;
+
+        Mount(String name, String contentType, byte[] header, byte[] data, boolean loop, long byteRate) {
+            this.name = name;
+            this.contentType = contentType;
+            this.header = header;
+            this.data = data;
+            this.loop = loop;
+            this.byteRate = byteRate;
+        }
+    }
+
+    /**
+     * @param port port to listen on at the loopback address, or 0 for any free port
+     */
+    public FakeStationServer(int port) throws IOException {
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Adds a mount playing an endless sine tone as 44.1 kHz stereo WAV.
+     */
+    public void addTone(String mount, int frequencyHz) {
+        int frames = (int) TONE_FORMAT.getSampleRate();
+        byte[] pcm = new byte[frames * TONE_FORMAT.getFrameSize()];
+        // One second of a whole-Hz tone loops without a seam
+        for (int f = 0, b = 0; f < frames; f++) {
+            short s = (short) (Math.sin(2 * Math.PI * frequencyHz * f / frames) * 8000);
+            for (int c = 0; c < 2; c++, b += 2) {
+                pcm[b] = (byte) s;
+                pcm[b + 1] = (byte) (s >> 8);
+            }
+        }
+        long byteRate = (long) (TONE_FORMAT.getSampleRate() * TONE_FORMAT.getFrameSize());
+        mounts.put(normalize(mount), new Mount(mount, "audio/wav", StationRelay.wavHeader(TONE_FORMAT), pcm, true, byteRate));
+    }
+
+    /**
+     * Adds a mount serving {@code file}. MP3, Ogg and WAV loop forever; FLAC
+     * is served once, because a FLAC stream can't start over mid-stream.
+     */
+    public void addFixture(String mount, Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+
+        if (name.endsWith(".wav")) {
+            try (AudioInputStream in = AudioSystem.getAudioInputStream(file.toFile())) {
+                AudioFormat format = in.getFormat();
+                byte[] pcm = in.readAllBytes();
+                long byteRate = (long) (format.getSampleRate() * format.getFrameSize());
+                mounts.put(normalize(mount), new Mount(mount, "audio/wav", StationRelay.wavHeader(format), pcm, true, byteRate));
+            } catch (UnsupportedAudioFileException e) {
+                throw new IOException("Unreadable WAV fixture " + file + ": " + e.getMessage(), e);
+            }
+            return;
+        }
+
+        String contentType;
+        boolean loop = true;
+        if (name.endsWith(".mp3")) {
+            contentType = "audio/mpeg";
+        } else if (name.endsWith(".ogg") || name.endsWith(".oga")) {
+            contentType = "application/ogg";
+        } else if (name.endsWith(".flac")) {
+            contentType = "audio/flac";
+            loop = false;
+        } else {
+            throw new IOException("Unsupported fixture type: " + file);
+        }
+        byte[] data = Files.readAllBytes(file);
+        mounts.put(normalize(mount), new Mount(mount, contentType, new byte[0], data, loop, byteRate(file, data.length)));
+    }
+
+    /**
+     * Adds every supported file in {@code dir} as a mount named after the file.
+     *
+     * @return number of fixtures added
+     */
+    public int addFixtures(Path dir) throws IOException {
+        int added = 0;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.sorted().toList()) {
+                String fileName = file.getFileName().toString();
+                int dot = fileName.lastIndexOf('.');
+                if (dot <= 0 || !Files.isRegularFile(file)) continue;
+                try {
+                    addFixture(fileName.substring(0, dot), file);
+                    added++;
+                } catch (IOException e) {
+                    System.err.println("Skipping fixture: " + e.getMessage());
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Faults applied to every request, as a query string like {@code rate=0.8&stallEvery=20};
+     * parameters on the request itself take precedence.
+     */
+    public void setDefaultFaults(String query) {
+        this.defaultFaults = parseQuery(query);
+    }
+
+    public void start() {
+        running = true;
+        acceptThread = new Thread(this::acceptLoop);
+        acceptThread.setDaemon(true);
+        acceptThread.setName("FakeStation-Accept");
+        acceptThread.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public List<String> getMounts() {
+        List<String> names = new ArrayList<>();
+        for (Mount mount : mounts.values()) names.add(mount.name);
+        names.sort(null);
+        return names;
+    }
+
+    /**
+     * MIME type of a mount, or null if there is no such mount.
+     */
+    public String getContentType(String mount) {
+        Mount m = mounts.get(normalize(mount));
+        return m != null ? m.contentType : null;
+    }
+
+    public String url(String mount) {
+        return "http://127.0.0.1:" + getPort() + normalize(mount);
+    }
+
+    /**
+     * URL of {@code mount} with the given fault parameters, e.g. {@code "dropAfter=20"}.
+     */
+    public String url(String mount, String faults) {
+        return faults == null || faults.isEmpty() ? url(mount) : url(mount) + "?" + faults;
+    }
+
+    /**
+     * Listener connections currently open; should fall back to zero once clients stop.
+     */
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    public long getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    public long getBytesServed() {
+        return bytesServed.get();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {}
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread.ofVirtual().name("FakeStation-Client").start(() -> serve(socket));
+            } catch (IOException e) {
+                if (running) System.err.println("Fake station accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        activeConnections.incrementAndGet();
+        totalConnections.incrementAndGet();
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            Request request = Request.read(socket.getInputStream());
+            if (request == null) return;
+
+            Map<String, String> faults = new HashMap<>(defaultFaults);
+            faults.putAll(request.query);
+            OutputStream out = socket.getOutputStream();
+
+            long connectDelay = longFault(faults, "connectDelay", 0);
+            if (connectDelay > 0) Thread.sleep(connectDelay);
+
+            Mount mount = mounts.get(request.path);
+            int status = (int) longFault(faults, "status", 200);
+            if (mount == null || status != 200) {
+                int code = mount == null ? 404 : status;
+                out.write(("HTTP/1.0 " + code + " Error\r\nContent-Length: 0\r\nConnection: close\r\n\r\n")
+                        .getBytes(StandardCharsets.ISO_8859_1));
+                out.flush();
+                return;
+            }
+
+            boolean metadata = "1".equals(request.headers.get("icy-metadata"));
+            StringBuilder head = new StringBuilder();
+            head.append(longFault(faults, "icy", 0) == 1 ? "ICY 200 OK\r\n" : "HTTP/1.0 200 OK\r\n");
+            head.append("Content-Type: ").append(mount.contentType).append("\r\n");
+            head.append("icy-name: Fake ").append(mount.name).append("\r\n");
+            head.append("icy-br: ").append(mount.byteRate * 8 / 1000).append("\r\n");
+            if (metadata) head.append("icy-metaint: ").append(META_INTERVAL).append("\r\n");
+            head.append("Cache-Control: no-cache\r\nConnection: close\r\n\r\n");
+            out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+
+            stream(mount, new IcyOutput(out, metadata ? META_INTERVAL : 0, mount.name), faults);
+        } catch (IOException ignored) {
+            // Listener went away
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            activeConnections.decrementAndGet();
+        }
+    }
+
+    private void stream(Mount mount, IcyOutput out, Map<String, String> faults) throws IOException, InterruptedException {
+        double rate = doubleFault(faults, "rate", 1.0);
+        long burst = longFault(faults, "burst", BURST_BYTES);
+        long stallEveryNanos = longFault(faults, "stallEvery", 0) * 1_000_000_000L;
+        long stallMs = longFault(faults, "stallMs", 2000);
+        long dropAfterNanos = longFault(faults, "dropAfter", 0) * 1_000_000_000L;
+        double bytesPerNano = mount.byteRate * rate / 1e9;
+
+        out.write(mount.header, 0, mount.header.length);
+
+        long connectedAt = System.nanoTime();
+        long paceFrom = connectedAt;
+        long nextStall = stallEveryNanos > 0 ? connectedAt + stallEveryNanos : Long.MAX_VALUE;
+        long sent = 0;
+        int pos = 0;
+
+        while (running) {
+            long now = System.nanoTime();
+            if (dropAfterNanos > 0 && now - connectedAt >= dropAfterNanos) return;
+            if (now >= nextStall) {
+                Thread.sleep(stallMs);
+                // A stalled source doesn't catch up afterwards
+                paceFrom += stallMs * 1_000_000L;
+                nextStall += stallEveryNanos + stallMs * 1_000_000L;
+                continue;
+            }
+
+            long allowed = burst + (long) ((now - paceFrom) * bytesPerNano) - sent;
+            if (allowed <= 0) {
+                Thread.sleep(TICK_MS);
+                continue;
+            }
+
+            int n = (int) Math.min(Math.min(allowed, CHUNK_BYTES), mount.data.length - pos);
+            out.write(mount.data, pos, n);
+            out.title(mount.name + " - Track " + ((now - connectedAt) / 1_000_000_000L / TITLE_SECONDS + 1));
+            bytesServed.addAndGet(n);
+            sent += n;
+            pos += n;
+            if (pos == mount.data.length) {
+                if (!mount.loop) return;
+                pos = 0;
+            }
+        }
+    }
+
+    private static long byteRate(Path file, long size) {
+        try {
+            AudioFileFormat format = AudioSystem.getAudioFileFormat(file.toFile());
+            // mp3spi and vorbisspi report the duration in microseconds
+            if (format.properties().get("duration") instanceof Long micros && micros > 0) {
+                return size * 1_000_000L / micros;
+            }
+            float frameRate = format.getFormat().getFrameRate();
+            if (format.getFrameLength() > 0 && frameRate > 0) {
+                return (long) (size / (format.getFrameLength() / frameRate));
+            }
+        } catch (UnsupportedAudioFileException | IOException ignored) {}
+        return FALLBACK_BYTE_RATE;
+    }
+
+    private static long longFault(Map<String, String> faults, String name, long fallback) {
+        try {
+            return faults.containsKey(name) ? Long.parseLong(faults.get(name)) : fallback;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static double doubleFault(Map<String, String> faults, String name, double fallback) {
+        try {
+            return faults.containsKey(name) ? Double.parseDouble(faults.get(name)) : fallback;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static String normalize(String mount) {
+        return mount.startsWith("/") ? mount : "/" + mount;
+    }
+
+    static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) return params;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    /**
+     * Minimal HTTP/1.x request head: just what the fake servers need.
+     */
+    static final class Request {
+        private static final int MAX_HEAD_BYTES = 16 * 1024;
+
+        final String method;
+        final String path;
+        final Map<String, String> query;
+        final Map<String, String> headers;
+
+        private Request(String method, String path, Map<String, String> query, Map<String, String> headers) {
+            this.method = method;
+            this.path = path;
+            this.query = query;
+            this.headers = headers;
+        }
+
+        /**
+         * Reads up to the blank line ending the head; null if the client sent nothing usable.
+         */
+        static Request read(InputStream in) throws IOException {
+            ByteArrayOutputStream head = new ByteArrayOutputStream();
+            int lastFour = 0;
+            while (lastFour != 0x0D0A0D0A) {
+                int b = in.read();
+                if (b == -1 || head.size() >= MAX_HEAD_BYTES) return null;
+                head.write(b);
+                lastFour = (lastFour << 8) | b;
+            }
+
+            String[] lines = head.toString(StandardCharsets.ISO_8859_1).split("\r\n");
+            String[] requestLine = lines[0].split(" ");
+            if (requestLine.length < 2) return null;
+
+            String target = requestLine[1];
+            int q = target.indexOf('?');
+            String path = q < 0 ? target : target.substring(0, q);
+            Map<String, String> query = parseQuery(q < 0 ? null : target.substring(q + 1));
+
+            Map<String, String> headers = new HashMap<>();
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                if (colon > 0) {
+                    headers.put(lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT),
+                            lines[i].substring(colon + 1).trim());
+                }
+            }
+            return new Request(requestLine[0], path, query, headers);
+        }
+    }
+
+    /**
+     * Interleaves ICY metadata blocks into the audio when the client asked for them.
+     */
+    private static final class IcyOutput {
+        private final OutputStream out;
+        private final int metaInterval;
+        private int untilMeta;
+        private String title;
+        private String sentTitle;
+
+        IcyOutput(OutputStream out, int metaInterval, String title) {
+            this.out = out;
+            this.metaInterval = metaInterval;
+            this.untilMeta = metaInterval;
+            this.title = title;
+        }
+
+        void title(String title) {
+            this.title = title;
+        }
+
+        void write(byte[] data, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = metaInterval > 0 ? Math.min(len, untilMeta) : len;
+                out.write(data, off, n);
+                off += n;
+                len -= n;
+                if (metaInterval > 0 && (untilMeta -= n) == 0) {
+                    writeMetadata();
+                    untilMeta = metaInterval;
+                }
+            }
+            out.flush();
+        }
+
+        private void writeMetadata() throws IOException {
+            // An unchanged title is sent as an empty block
+            if (title.equals(sentTitle)) {
+                out.write(0);
+                return;
+            }
+            byte[] text = ("StreamTitle='" + title.replace("'", "") + "';").getBytes(StandardCharsets.UTF_8);
+            int blocks = Math.min(255, (text.length + 15) / 16);
+            byte[] block = new byte[blocks * 16];
+            System.arraycopy(text, 0, block, 0, Math.min(text.length, block.length));
+            out.write(blocks);
+            out.write(block);
+            sentTitle = title;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFormat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PcmConverterTest {
+
+    @Test
+    void matchingFormatIsCopied() {
+        PcmConverter converter = new PcmConverter(format(48000, 2), format(48000, 2), Resampler.Quality.MEDIUM);
+        assertTrue(converter.isPassthrough(), "passthrough");
+
+        byte[] pcm = {1, 2, 3, 4, 5, 6, 7, 8};
+        assertEquals(pcm.length, converter.convert(pcm, pcm.length), "bytes");
+        for (int i = 0; i < pcm.length; i++) {
+            assertEquals(pcm[i], converter.buffer()[i], "byte " + i);
+        }
+    }
+
+    @Test
+    void monoCdRateBecomesStereoDeviceRate() {
+        PcmConverter converter = new PcmConverter(format(44100, 1), format(48000, 2), Resampler.Quality.MEDIUM);
+        assertFalse(converter.isPassthrough(), "passthrough");
+
+        // One second of a half-scale 1 kHz sine
+        byte[] pcm = new byte[44100 * 2];
+        for (int i = 0; i < 44100; i++) {
+            short s = (short) (16384 * Math.sin(2 * Math.PI * 1000 * i / 44100.0));
+            pcm[2 * i] = (byte) s;
+            pcm[2 * i + 1] = (byte) (s >> 8);
+        }
+        int bytes = converter.convert(pcm, pcm.length);
+        int frames = bytes / 4;
+        assertTrue(Math.abs(frames - 48000) < 64, "frames " + frames);
+
+        byte[] out = converter.buffer();
+        int peak = 0;
+        for (int f = 0; f < frames; f++) {
+            short left = (short) ((out[4 * f] & 0xFF) | (out[4 * f + 1] << 8));
+            short right = (short) ((out[4 * f + 2] & 0xFF) | (out[4 * f + 3] << 8));
+            assertEquals(left, right, "frame " + f);
+            peak = Math.max(peak, Math.abs(left));
+        }
+        assertTrue(Math.abs(peak - 16384) < 200, "peak " + peak);
+    }
+
+    private static AudioFormat format(float rate, int channels) {
+        return new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, rate, 16, channels, channels * 2, rate, false);
+    }
+}
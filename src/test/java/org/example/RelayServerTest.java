@@ -0,0 +1,484 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import javax.sound.sampled.AudioFormat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the relay against a loopback stub upstream. The stub sends a counting
+ * pattern, so every listener can check that what it got is one unbroken piece
+ * of the upstream, or see exactly where it was skipped ahead.
+ */
+class RelayServerTest {
+
+    private static final int RING_BYTES = 256 * 1024;
+
+    private final List<Closeable> toClose = new ArrayList<>();
+
+    private StubUpstream upstream;
+    private StationRelay relay;
+    private RelayServer server;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (int i = toClose.size() - 1; i >= 0; i--) {
+            toClose.get(i).close();
+        }
+    }
+
+    @Test
+    void fansOneUpstreamOutToManyListeners() throws Exception {
+        startRelay(256_000);
+        List<SocketChannel> channels = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            channels.add(connectNonBlocking());
+        }
+
+        List<PatternCheck> checks = readAll(channels, 512 * 1024, 20_000);
+
+        assertEquals(1, upstream.connections.get(), "upstream connections");
+        assertEquals(64, server.getListenerCount(), "listeners");
+        for (PatternCheck check : checks) {
+            assertTrue(check.bytes >= 512 * 1024, "listener got only " + check.bytes + " bytes");
+            assertEquals(0, check.discontinuities, "discontinuities");
+        }
+    }
+
+    @Test
+    void stalledListenerSkipsToLive() throws Exception {
+        startRelay(1_000_000);
+        Socket socket = connectBlocking();
+        InputStream in = socket.getInputStream();
+        PatternCheck check = new PatternCheck();
+        byte[] chunk = new byte[8192];
+        check.accept(chunk, 0, in.read(chunk));
+
+        // Stall long enough to be lapped once or twice, but not often enough to be dropped
+        long stallUntil = relay.getBuffer().writePosition() + RING_BYTES * 3L / 2;
+        waitFor(() -> relay.getBuffer().writePosition() >= stallUntil, 10_000);
+
+        while (check.bytes < 3L * RING_BYTES) {
+            int n = in.read(chunk);
+            assertTrue(n > 0, "stalled listener was disconnected");
+            check.accept(chunk, 0, n);
+        }
+        assertTrue(check.discontinuities >= 1, "listener was never skipped ahead");
+        assertTrue(check.offset > relay.getBuffer().oldestPosition(), "listener is not back near live");
+        assertEquals(1, server.getListenerCount(), "listeners");
+    }
+
+    @Test
+    void listenerThatNeverReadsIsDroppedWithoutStallingOthers() throws Exception {
+        startRelay(1_000_000);
+        connectBlocking();
+        SocketChannel healthy = connectNonBlocking();
+        waitFor(() -> server.getListenerCount() == 2, 5_000);
+
+        // Enough to lap the stalled listener well past the skip limit
+        long untilDropped = relay.getBuffer().writePosition() + RING_BYTES * 8L;
+        List<PatternCheck> checks = readAll(List.of(healthy), Long.MAX_VALUE,
+                () -> relay.getBuffer().writePosition() >= untilDropped, 20_000);
+
+        waitFor(() -> server.getListenerCount() == 1, 5_000);
+        assertEquals(0, checks.get(0).discontinuities, "healthy listener discontinuities");
+        assertTrue(checks.get(0).bytes >= RING_BYTES * 7L, "healthy listener got only " + checks.get(0).bytes);
+    }
+
+    @Test
+    void servesHundredsOfListenersOnOneSelectorThread() throws Exception {
+        int listeners = 300;
+        int byteRate = 128_000 / 8;
+        int seconds = 5;
+        startRelay(byteRate);
+
+        List<SocketChannel> channels = new ArrayList<>();
+        for (int i = 0; i < listeners; i++) {
+            channels.add(connectNonBlocking());
+        }
+        waitFor(() -> server.getListenerCount() == listeners, 10_000);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long selectorId = threadId("Relay-Selector");
+        long cpuBefore = threads.getThreadCpuTime(selectorId);
+        long started = System.nanoTime();
+        List<PatternCheck> checks = readAll(channels, Long.MAX_VALUE,
+                () -> System.nanoTime() - started >= seconds * 1_000_000_000L, seconds * 2000L);
+        long wallNanos = System.nanoTime() - started;
+        double share = (double) (threads.getThreadCpuTime(selectorId) - cpuBefore) / wallNanos;
+
+        System.out.printf("Relay: %d listeners at 128 kbps used %.1f%% of one core on the selector thread%n",
+                listeners, share * 100);
+        for (PatternCheck check : checks) {
+            assertEquals(0, check.discontinuities, "discontinuities");
+            assertTrue(check.bytes >= (long) byteRate * (seconds - 1), "listener got only " + check.bytes);
+        }
+        assertTrue(share < 0.5, "selector used " + share + " of a core");
+    }
+
+    @Test
+    void stopClosesAStalledUpstream() throws Exception {
+        FakeStationServer stations = new FakeStationServer(0);
+        toClose.add(stations);
+        stations.addTone("tone", 440);
+        stations.start();
+        StationRelay stalled = new StationRelay("/stalled", stations.url("tone", "burst=0&stallEvery=1&stallMs=30000"),
+                StationRelay.Mode.PASSTHROUGH, RING_BYTES);
+        stalled.start();
+        waitFor(stalled::isReady, 5_000);
+        // Let the upstream go silent so the relay thread sits in a socket read
+        Thread.sleep(1500);
+
+        long started = System.nanoTime();
+        stalled.stop();
+        long stopMillis = (System.nanoTime() - started) / 1_000_000;
+
+        assertTrue(stopMillis < 1000, "stop took " + stopMillis + " ms");
+        assertTrue(Thread.getAllStackTraces().keySet().stream().noneMatch(t -> t.getName().equals("Relay/stalled")),
+                "relay thread still running");
+    }
+
+    @Test
+    void formatChangeDropsListenersOfTheOldHeader() throws Exception {
+        WavUpstream wav = new WavUpstream();
+        toClose.add(wav);
+        relay = new StationRelay("/test", wav.url(), StationRelay.Mode.WAV, RING_BYTES);
+        server = new RelayServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        toClose.add(server);
+        server.addMount(relay);
+        server.start();
+        waitFor(relay::isReady, 5_000);
+
+        Socket before = connectBlocking();
+        byte[] header = before.getInputStream().readNBytes(44);
+        assertEquals(44100, ByteBuffer.wrap(header, 24, 4).order(ByteOrder.LITTLE_ENDIAN).getInt(), "first rate");
+
+        // The upstream reconnects at another rate; the old header would now lie
+        InputStream in = before.getInputStream();
+        byte[] chunk = new byte[8192];
+        while (in.read(chunk) >= 0) {
+            // Drain until the relay hangs up
+        }
+        assertEquals(1, relay.formatGeneration(), "format generation");
+
+        Socket after = connectBlocking();
+        header = after.getInputStream().readNBytes(44);
+        assertEquals(22050, ByteBuffer.wrap(header, 24, 4).order(ByteOrder.LITTLE_ENDIAN).getInt(), "second rate");
+        assertTrue(after.getInputStream().readNBytes(4096).length == 4096, "no PCM after the new header");
+    }
+
+    private void startRelay(int byteRate) throws IOException {
+        upstream = new StubUpstream(byteRate);
+        toClose.add(upstream);
+        relay = new StationRelay("/test", upstream.url(), StationRelay.Mode.PASSTHROUGH, RING_BYTES);
+        server = new RelayServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        toClose.add(server);
+        server.addMount(relay);
+        server.start();
+    }
+
+    private SocketChannel connectNonBlocking() throws IOException {
+        SocketChannel channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()));
+        toClose.add(channel);
+        channel.write(ByteBuffer.wrap(request()));
+        channel.configureBlocking(false);
+        return channel;
+    }
+
+    private Socket connectBlocking() throws IOException {
+        Socket socket = new Socket();
+        toClose.add(socket);
+        // A tiny window so the relay's socket fills up as soon as we stop reading
+        socket.setReceiveBufferSize(4096);
+        socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()));
+        socket.setSoTimeout(10_000);
+        OutputStream out = socket.getOutputStream();
+        out.write(request());
+        out.flush();
+        skipHeader(socket.getInputStream());
+        return socket;
+    }
+
+    private static byte[] request() {
+        return "GET /test HTTP/1.0\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static void skipHeader(InputStream in) throws IOException {
+        int matched = 0;
+        while (matched < 4) {
+            int b = in.read();
+            if (b < 0) throw new IOException("Relay closed before the header ended");
+            matched = (b == (matched % 2 == 0 ? '\r' : '\n')) ? matched + 1 : (b == '\r' ? 1 : 0);
+        }
+    }
+
+    private static List<PatternCheck> readAll(List<SocketChannel> channels, long bytesEach, long timeoutMillis) throws IOException {
+        return readAll(channels, bytesEach, () -> false, timeoutMillis);
+    }
+
+    /**
+     * Reads every channel from one selector until each has {@code bytesEach}
+     * bytes of body, {@code done} turns true, or the timeout passes.
+     */
+    private static List<PatternCheck> readAll(List<SocketChannel> channels, long bytesEach,
+                                              BooleanSupplier done, long timeoutMillis) throws IOException {
+        List<PatternCheck> checks = new ArrayList<>();
+        try (Selector selector = Selector.open()) {
+            for (SocketChannel channel : channels) {
+                PatternCheck check = new PatternCheck();
+                check.expectHeader = true;
+                checks.add(check);
+                channel.register(selector, SelectionKey.OP_READ, check);
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(16384);
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (System.currentTimeMillis() < deadline && !done.getAsBoolean()
+                    && checks.stream().anyMatch(c -> c.bytes < bytesEach)) {
+                selector.select(100);
+                for (SelectionKey key : selector.selectedKeys()) {
+                    buffer.clear();
+                    int n = ((SocketChannel) key.channel()).read(buffer);
+                    if (n < 0) {
+                        key.cancel();
+                        continue;
+                    }
+                    ((PatternCheck) key.attachment()).accept(buffer.array(), 0, n);
+                }
+                selector.selectedKeys().clear();
+            }
+        }
+        return checks;
+    }
+
+    private static void waitFor(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out waiting");
+            Thread.sleep(10);
+        }
+    }
+
+    private static long threadId(String name) {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals(name)) return thread.threadId();
+        }
+        throw new AssertionError("no thread named " + name);
+    }
+
+    /**
+     * Byte {@code offset} of the upstream: big-endian 32-bit counters 0, 1, 2, ...
+     */
+    static byte patternAt(long offset) {
+        int counter = (int) (offset >>> 2);
+        return (byte) (counter >>> (8 * (3 - (int) (offset & 3))));
+    }
+
+    /**
+     * Follows one listener's bytes and counts the places they jump.
+     */
+    static final class PatternCheck {
+        boolean expectHeader;
+        int headerMatched;
+        long bytes;
+        int discontinuities;
+        // Upstream offset of the next expected byte, or -1 until we've synced
+        long offset = -1;
+        private final byte[] window = new byte[16];
+        private int windowLength;
+
+        void accept(byte[] data, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                byte b = data[i];
+                if (expectHeader) {
+                    headerMatched = (b == (headerMatched % 2 == 0 ? '\r' : '\n')) ? headerMatched + 1 : (b == '\r' ? 1 : 0);
+                    if (headerMatched == 4) expectHeader = false;
+                    continue;
+                }
+                bytes++;
+                if (offset >= 0) {
+                    if (b == patternAt(offset)) {
+                        offset++;
+                        continue;
+                    }
+                    discontinuities++;
+                    offset = -1;
+                    windowLength = 0;
+                }
+                window[windowLength++] = b;
+                if (windowLength == window.length) sync();
+            }
+        }
+
+        // Finds where in the upstream the window sits from three consecutive counters
+        private void sync() {
+            for (int align = 0; align < 4; align++) {
+                int a = readInt(align);
+                if (readInt(align + 4) == a + 1 && readInt(align + 8) == a + 2) {
+                    offset = ((long) a << 2) - align + window.length;
+                    windowLength = 0;
+                    return;
+                }
+            }
+            // Not aligned yet; slide by one byte
+            System.arraycopy(window, 1, window, 0, window.length - 1);
+            windowLength--;
+        }
+
+        private int readInt(int at) {
+            return ((window[at] & 0xFF) << 24) | ((window[at + 1] & 0xFF) << 16)
+                    | ((window[at + 2] & 0xFF) << 8) | (window[at + 3] & 0xFF);
+        }
+    }
+
+    /**
+     * Plain HTTP upstream sending the counting pattern at a fixed byte rate.
+     */
+    static final class StubUpstream implements Closeable {
+        final AtomicInteger connections = new AtomicInteger();
+        private final ServerSocket serverSocket;
+        private final int byteRate;
+        private volatile boolean running = true;
+
+        StubUpstream(int byteRate) throws IOException {
+            this.byteRate = byteRate;
+            serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            Thread accept = new Thread(this::acceptLoop, "StubUpstream-Accept");
+            accept.setDaemon(true);
+            accept.start();
+        }
+
+        String url() {
+            return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/stream.mp3";
+        }
+
+        @Override
+        public void close() throws IOException {
+            running = false;
+            serverSocket.close();
+        }
+
+        private void acceptLoop() {
+            while (running) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    connections.incrementAndGet();
+                    Thread.ofVirtual().name("StubUpstream-Client").start(() -> serve(socket));
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket socket) {
+            try (socket) {
+                skipHeader(socket.getInputStream());
+                OutputStream out = socket.getOutputStream();
+                out.write("HTTP/1.0 200 OK\r\nContent-Type: audio/mpeg\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+
+                byte[] chunk = new byte[65536];
+                long sent = 0;
+                long started = System.nanoTime();
+                while (running) {
+                    long due = (System.nanoTime() - started) * byteRate / 1_000_000_000L;
+                    int n = (int) Math.min(chunk.length, due - sent);
+                    if (n <= 0) {
+                        Thread.sleep(20);
+                        continue;
+                    }
+                    for (int i = 0; i < n; i++) {
+                        chunk[i] = patternAt(sent + i);
+                    }
+                    out.write(chunk, 0, n);
+                    sent += n;
+                }
+            } catch (IOException | InterruptedException ignored) {
+                // Relay went away
+            }
+        }
+    }
+
+    /**
+     * WAV upstream that serves 44.1 kHz stereo for a moment, then 22.05 kHz mono
+     * on every reconnect, like a station switching its encoder.
+     */
+    static final class WavUpstream implements Closeable {
+        private final ServerSocket serverSocket;
+        private final AtomicInteger connections = new AtomicInteger();
+        private volatile boolean running = true;
+
+        WavUpstream() throws IOException {
+            serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            Thread accept = new Thread(this::acceptLoop, "WavUpstream-Accept");
+            accept.setDaemon(true);
+            accept.start();
+        }
+
+        String url() {
+            return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/stream.wav";
+        }
+
+        @Override
+        public void close() throws IOException {
+            running = false;
+            serverSocket.close();
+        }
+
+        private void acceptLoop() {
+            while (running) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    boolean first = connections.getAndIncrement() == 0;
+                    Thread.ofVirtual().name("WavUpstream-Client").start(() -> serve(socket, first));
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket socket, boolean first) {
+            float rate = first ? 44100 : 22050;
+            int channels = first ? 2 : 1;
+            AudioFormat format = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, rate, 16, channels, channels * 2, rate, false);
+            try (socket) {
+                skipHeader(socket.getInputStream());
+                OutputStream out = socket.getOutputStream();
+                out.write("HTTP/1.0 200 OK\r\nContent-Type: audio/wav\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+                out.write(StationRelay.wavHeader(format));
+
+                // Silence in 100 ms pieces; the first session ends after two seconds
+                byte[] piece = new byte[(int) rate * channels * 2 / 10];
+                for (int i = 0; running && (!first || i < 20); i++) {
+                    out.write(piece);
+                    Thread.sleep(100);
+                }
+            } catch (IOException | InterruptedException ignored) {
+                // Relay went away
+            }
+        }
+    }
+}
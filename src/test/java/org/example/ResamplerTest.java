@@ -0,0 +1,125 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Feeds sines through the resampler in random block sizes, the way decoded
+ * station audio arrives, and measures what comes out.
+ */
+class ResamplerTest {
+
+    private static final float[][] CD_DVD = {{44100f, 48000f}, {48000f, 44100f}};
+
+    @Test
+    void passesOneKilohertzAtUnityGainAndHighSnr() {
+        for (Resampler.Quality quality : Resampler.Quality.values()) {
+            for (float[] rates : CD_DVD) {
+                String label = quality + " " + rates[0] + " -> " + rates[1];
+                float[] out = resample(sine(1000, rates[0], 2), rates[0], rates[1], quality, new Random(1));
+                double[] fit = fitSine(out, 1000, rates[1]);
+
+                assertEquals(1.0, fit[0] / 0.5, 0.001, label + " gain");
+                assertTrue(fit[1] > 70, label + " SNR " + fit[1] + " dB");
+            }
+        }
+    }
+
+    @Test
+    void blockSizeDoesNotChangeTheOutput() {
+        for (float[] rates : CD_DVD) {
+            float[] in = sine(1000, rates[0], 1);
+            float[] whole = resample(in, rates[0], rates[1], Resampler.Quality.MEDIUM, null);
+            float[] blocks = resample(in, rates[0], rates[1], Resampler.Quality.MEDIUM, new Random(7));
+
+            assertEquals(whole.length, blocks.length, "output length");
+            for (int i = 0; i < whole.length; i++) {
+                if (Math.abs(whole[i] - blocks[i]) > 1e-6f) {
+                    throw new AssertionError("block boundary glitch at frame " + i + ": " + whole[i] + " vs " + blocks[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void rejectsToneAboveTheOutputNyquist() {
+        // 18 kHz would alias to 4.05 kHz at 22.05 kHz output
+        float[] in = sine(18000, 48000, 2);
+        assertTrue(levelDb(resample(in, 48000, 22050, Resampler.Quality.LOW, new Random(3))) < -20, "LOW stopband");
+        assertTrue(levelDb(resample(in, 48000, 22050, Resampler.Quality.MEDIUM, new Random(3))) < -60, "MEDIUM stopband");
+        assertTrue(levelDb(resample(in, 48000, 22050, Resampler.Quality.HIGH, new Random(3))) < -60, "HIGH stopband");
+    }
+
+    private static float[] sine(double frequency, float rate, int seconds) {
+        float[] samples = new float[(int) rate * seconds];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (float) (0.5 * Math.sin(2 * Math.PI * frequency * i / rate));
+        }
+        return samples;
+    }
+
+    /**
+     * Mono resampling, in one call when {@code blocks} is null or in random blocks of 1 to 4096 frames.
+     */
+    private static float[] resample(float[] in, float inRate, float outRate, Resampler.Quality quality, Random blocks) {
+        Resampler resampler = new Resampler(inRate, outRate, 1, quality);
+        float[] out = new float[resampler.maxOutputFrames(in.length)];
+        int produced = 0;
+        for (int pos = 0; pos < in.length; ) {
+            int n = blocks == null ? in.length : Math.min(in.length - pos, 1 + blocks.nextInt(4096));
+            float[] block = Arrays.copyOfRange(in, pos, pos + n);
+            float[] result = new float[resampler.maxOutputFrames(n)];
+            int got = resampler.process(block, n, result);
+            if (produced + got > out.length) out = Arrays.copyOf(out, (produced + got) * 2);
+            System.arraycopy(result, 0, out, produced, got);
+            produced += got;
+            pos += n;
+        }
+        return Arrays.copyOf(out, produced);
+    }
+
+    /**
+     * Least-squares fit of a sine at {@code frequency}, skipping the filter's start and end.
+     *
+     * @return amplitude and SNR in dB of the residual
+     */
+    private static double[] fitSine(float[] out, double frequency, float rate) {
+        int from = 200;
+        int to = out.length - 200;
+        double w = 2 * Math.PI * frequency / rate;
+        double ss = 0, cc = 0, sc = 0, ys = 0, yc = 0;
+        for (int j = from; j < to; j++) {
+            double s = Math.sin(w * j), c = Math.cos(w * j);
+            ss += s * s;
+            cc += c * c;
+            sc += s * c;
+            ys += out[j] * s;
+            yc += out[j] * c;
+        }
+        double det = ss * cc - sc * sc;
+        double a = (ys * cc - yc * sc) / det;
+        double b = (yc * ss - ys * sc) / det;
+
+        double noise = 0;
+        for (int j = from; j < to; j++) {
+            double e = out[j] - (a * Math.sin(w * j) + b * Math.cos(w * j));
+            noise += e * e;
+        }
+        double amplitude = Math.hypot(a, b);
+        double signal = amplitude * amplitude / 2 * (to - from);
+        return new double[] {amplitude, 10 * Math.log10(signal / noise)};
+    }
+
+    // RMS relative to the 0.5 amplitude input sine
+    private static double levelDb(float[] out) {
+        double sum = 0;
+        for (int j = 200; j < out.length - 200; j++) sum += out[j] * out[j];
+        double rms = Math.sqrt(sum / (out.length - 400));
+        return 20 * Math.log10(rms / (0.5 / Math.sqrt(2)));
+    }
+}
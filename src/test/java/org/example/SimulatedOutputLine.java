@@ -0,0 +1,237 @@
+package org.example;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Control;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.Line;
+import javax.sound.sampled.LineListener;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * A {@link SourceDataLine} with no sound card behind it. Queued audio is
+ * consumed against the wall clock at the format's byte rate, so writers block
+ * and buffers run dry exactly as they would on real hardware.
+ *
+ * Lets {@link UniversalAudioPlayer} run headless on build machines and under
+ * {@link SoakMain}, with underruns and latency still meaningful.
+ */
+public class SimulatedOutputLine implements SourceDataLine {
+
+    private static final int DEFAULT_BUFFER_MILLIS = 500;
+    private static final AudioFormat DEFAULT_FORMAT =
+            new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, 48000f, 16, 2, 4, 48000f, false);
+
+    private AudioFormat format = DEFAULT_FORMAT;
+    private int bufferSize;
+    private boolean open = false;
+    private boolean started = false;
+
+    private long queued = 0;
+    private long played = 0;
+    private long clockAt = 0;
+    // Bumped by flush() and close() to release writers and drainers
+    private long generation = 0;
+
+    @Override
+    public synchronized void open(AudioFormat format, int bufferSize) {
+        this.format = format;
+        int frameSize = Math.max(1, format.getFrameSize());
+        this.bufferSize = Math.max(frameSize, bufferSize - bufferSize % frameSize);
+        this.open = true;
+        this.queued = 0;
+        this.played = 0;
+        this.clockAt = System.nanoTime();
+    }
+
+    @Override
+    public void open(AudioFormat format) {
+        open(format, (int) (format.getSampleRate() * format.getFrameSize() * DEFAULT_BUFFER_MILLIS / 1000));
+    }
+
+    @Override
+    public void open() {
+        open(DEFAULT_FORMAT);
+    }
+
+    @Override
+    public synchronized void close() {
+        open = false;
+        started = false;
+        queued = 0;
+        generation++;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public synchronized int write(byte[] b, int off, int len) {
+        int frameSize = Math.max(1, format.getFrameSize());
+        len -= len % frameSize;
+        long startGeneration = generation;
+        int written = 0;
+
+        while (written < len && open && generation == startGeneration) {
+            advance();
+            int room = (int) (bufferSize - queued);
+            if (room >= frameSize) {
+                int n = Math.min(len - written, room - room % frameSize);
+                queued += n;
+                written += n;
+                notifyAll();
+                continue;
+            }
+            if (!waitForPlayback(frameSize)) break;
+        }
+        return written;
+    }
+
+    @Override
+    public synchronized void drain() {
+        long startGeneration = generation;
+        while (open && generation == startGeneration) {
+            advance();
+            if (queued == 0) return;
+            if (!waitForPlayback(queued)) return;
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        queued = 0;
+        generation++;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!started) {
+            started = true;
+            clockAt = System.nanoTime();
+            notifyAll();
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        advance();
+        started = false;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        advance();
+        return started && queued > 0;
+    }
+
+    @Override
+    public synchronized boolean isActive() {
+        return open && started;
+    }
+
+    @Override
+    public synchronized AudioFormat getFormat() {
+        return format;
+    }
+
+    @Override
+    public synchronized int getBufferSize() {
+        return bufferSize;
+    }
+
+    @Override
+    public synchronized int available() {
+        advance();
+        return (int) (bufferSize - queued);
+    }
+
+    @Override
+    public int getFramePosition() {
+        return (int) getLongFramePosition();
+    }
+
+    @Override
+    public synchronized long getLongFramePosition() {
+        advance();
+        return played / Math.max(1, format.getFrameSize());
+    }
+
+    @Override
+    public long getMicrosecondPosition() {
+        return (long) (getLongFramePosition() * 1_000_000L / format.getFrameRate());
+    }
+
+    @Override
+    public float getLevel() {
+        return AudioSystem.NOT_SPECIFIED;
+    }
+
+    @Override
+    public Line.Info getLineInfo() {
+        return new DataLine.Info(SourceDataLine.class, getFormat());
+    }
+
+    @Override
+    public Control[] getControls() {
+        return new Control[0];
+    }
+
+    @Override
+    public boolean isControlSupported(Control.Type control) {
+        return false;
+    }
+
+    @Override
+    public Control getControl(Control.Type control) {
+        throw new IllegalArgumentException("Unsupported control type: " + control);
+    }
+
+    @Override
+    public void addLineListener(LineListener listener) {
+        // No events; nothing in the player listens for them
+    }
+
+    @Override
+    public void removeLineListener(LineListener listener) {
+    }
+
+    /**
+     * Moves the play head forward by the time elapsed since the last call.
+     */
+    private void advance() {
+        long now = System.nanoTime();
+        if (!started || queued == 0) {
+            clockAt = now;
+            return;
+        }
+        int frameSize = Math.max(1, format.getFrameSize());
+        double frameNanos = 1e9 / format.getFrameRate();
+        long frames = (long) ((now - clockAt) / frameNanos);
+        long bytes = Math.min(queued, frames * frameSize);
+
+        queued -= bytes;
+        played += bytes;
+        // Keep the fractional frame for next time; an empty buffer can't bank time
+        clockAt = queued == 0 ? now : clockAt + (long) (bytes / frameSize * frameNanos);
+    }
+
+    /**
+     * Waits roughly as long as it takes to play {@code bytes}; false if interrupted.
+     */
+    private boolean waitForPlayback(long bytes) {
+        double byteNanos = 1e9 / (format.getFrameRate() * Math.max(1, format.getFrameSize()));
+        long millis = Math.max(1, (long) (bytes * byteNanos / 1_000_000));
+        try {
+            wait(started ? Math.min(millis, 50) : 50);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
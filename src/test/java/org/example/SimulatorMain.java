@@ -0,0 +1,65 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Runs local fake stations and a fake Radio Browser API mirror for trying the
+ * player without internet stations. Start the app with the printed
+ * {@code -Dradio.api=...} option and search for "Fake".
+ *
+ * Usage: SimulatorMain [--port 8001] [--api-port 8002] [--tones 4] [--fixtures dir] [--faults query]
+ */
+public class SimulatorMain {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = 8001;
+        int apiPort = 8002;
+        int tones = 4;
+        String fixtures = null;
+        String faults = null;
+
+        for (int i = 0; i < args.length; i++) {
+            boolean hasValue = i + 1 < args.length;
+            if (args[i].equals("--port") && hasValue) {
+                port = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--api-port") && hasValue) {
+                apiPort = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--tones") && hasValue) {
+                tones = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--fixtures") && hasValue) {
+                fixtures = args[++i];
+            } else if (args[i].equals("--faults") && hasValue) {
+                faults = args[++i];
+            } else {
+                System.err.println("Ignoring argument: " + args[i]);
+            }
+        }
+
+        FakeStationServer stations = new FakeStationServer(port);
+        for (int i = 0; i < tones; i++) {
+            stations.addTone("tone" + (i + 1), 220 * (i + 1));
+        }
+        if (fixtures != null) {
+            stations.addFixtures(Paths.get(fixtures));
+        }
+        stations.start();
+
+        FakeRadioBrowserServer api = new FakeRadioBrowserServer(apiPort);
+        api.addStations(stations, faults);
+        api.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            api.close();
+            stations.close();
+        }));
+
+        for (String mount : stations.getMounts()) {
+            System.out.println("Station " + stations.url(mount, faults));
+        }
+        System.out.println("Radio Browser API at " + api.baseUrl());
+        System.out.println("Run the player with -Dradio.api=" + api.baseUrl());
+
+        Thread.currentThread().join();
+    }
+}
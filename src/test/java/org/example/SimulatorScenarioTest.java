@@ -0,0 +1,91 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A short run of what {@link SoakMain} does for hours: finds the fixture
+ * stations through a failing and a healthy API mirror, then plays each of them
+ * in turn on a simulated sound card.
+ */
+class SimulatorScenarioTest {
+
+    private final List<String> errors = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<Long> firstAudio = new LinkedBlockingQueue<>();
+    private final BlockingQueue<String> titles = new LinkedBlockingQueue<>();
+
+    private FakeStationServer stations;
+    private FakeRadioBrowserServer brokenMirror;
+    private FakeRadioBrowserServer mirror;
+    private UniversalAudioPlayer player;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stations = new FakeStationServer(0);
+        Path fixtures = Paths.get(SimulatorScenarioTest.class.getResource("/fixtures").toURI());
+        assertEquals(3, stations.addFixtures(fixtures), "fixtures");
+        stations.addTone("tone", 440);
+        stations.start();
+
+        brokenMirror = new FakeRadioBrowserServer(0);
+        brokenMirror.setFailureRate(1.0);
+        brokenMirror.addStations(stations, null);
+        brokenMirror.start();
+        mirror = new FakeRadioBrowserServer(0);
+        mirror.addStations(stations, null);
+        mirror.start();
+
+        player = new UniversalAudioPlayer(new AudioOutput(new SimulatedOutputLine()));
+        player.setCallbackExecutor(Runnable::run);
+        player.setOnError(errors::add);
+        player.setOnFirstAudio(firstAudio::add);
+        player.setOnStreamTitle(titles::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        player.close();
+        mirror.close();
+        brokenMirror.close();
+        stations.close();
+    }
+
+    @Test
+    void playsEveryFixtureFoundThroughTheApi() throws Exception {
+        RadioBrowserAPI api = new RadioBrowserAPI(List.of(brokenMirror.baseUrl(), mirror.baseUrl()));
+        List<String> found = api.fetchStations("Fake");
+        assertEquals(4, found.size(), "stations found: " + found);
+
+        for (String entry : found) {
+            int urlStart = entry.lastIndexOf(" - ");
+            String name = entry.substring(0, urlStart);
+            String url = entry.substring(urlStart + 3);
+            String mount = url.substring(url.lastIndexOf('/') + 1);
+            firstAudio.clear();
+            titles.clear();
+
+            player.play(url, name);
+
+            assertNotNull(firstAudio.poll(10, TimeUnit.SECONDS), name + " never played; errors " + errors);
+            // Fixtures are smaller than the burst, so the first title comes right away
+            assertEquals(mount + " - Track 1", titles.poll(10, TimeUnit.SECONDS), name + " title");
+        }
+
+        player.stop();
+        assertTrue(errors.isEmpty(), "errors " + errors);
+        UniversalAudioPlayerTest.waitFor(() -> stations.getActiveConnections() == 0, 5000);
+    }
+}
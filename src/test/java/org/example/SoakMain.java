@@ -0,0 +1,288 @@
+package org.example;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless soak and load run of {@link UniversalAudioPlayer} against local
+ * fake stations; needs no network, JavaFX or sound card.
+ *
+ * Starts a {@link FakeStationServer} with tone mounts (plus any fixtures) and
+ * two {@link FakeRadioBrowserServer} mirrors, the first one too slow to answer,
+ * finds the stations through {@link RadioBrowserAPI}, then keeps switching
+ * between them on a {@link SimulatedOutputLine}. Some stations get the fault
+ * profile. Reports time-to-first-audio percentiles, failed starts, underruns,
+ * heap growth after GC, and threads and connections left behind.
+ *
+ * Usage: SoakMain [--minutes 10 | --hours H] [--switches N] [--dwell 5000]
+ *                 [--crossfade 0] [--timeshift] [--stations 8] [--fixtures dir]
+ *                 [--faults query] [--faulty-every 4] [--slow-mirror-ms 12000] [--seed 1]
+ *
+ * Exits with status 2 if threads or station connections leaked.
+ */
+public class SoakMain {
+
+    private static final String DEFAULT_FAULTS = "rate=0.9&stallEvery=20&stallMs=1500&dropAfter=90";
+    private static final long FIRST_AUDIO_TIMEOUT_MS = 15_000;
+    private static final long REPORT_INTERVAL_MS = 60_000;
+    private static final int WARMUP_SWITCHES = 20;
+
+    public static void main(String[] args) throws Exception {
+        long durationMs = 10 * 60_000L;
+        long maxSwitches = Long.MAX_VALUE;
+        long dwellMs = 5000;
+        int crossfadeMs = 0;
+        boolean timeshift = false;
+        int toneCount = 8;
+        Path fixtures = null;
+        String faults = DEFAULT_FAULTS;
+        int faultyEvery = 4;
+        long slowMirrorMs = 12_000;
+        long seed = 1;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            boolean hasValue = i + 1 < args.length;
+            if (arg.equals("--minutes") && hasValue) {
+                durationMs = Long.parseLong(args[++i]) * 60_000L;
+            } else if (arg.equals("--hours") && hasValue) {
+                durationMs = Long.parseLong(args[++i]) * 3_600_000L;
+            } else if (arg.equals("--switches") && hasValue) {
+                maxSwitches = Long.parseLong(args[++i]);
+            } else if (arg.equals("--dwell") && hasValue) {
+                dwellMs = Long.parseLong(args[++i]);
+            } else if (arg.equals("--crossfade") && hasValue) {
+                crossfadeMs = Integer.parseInt(args[++i]);
+            } else if (arg.equals("--timeshift")) {
+                timeshift = true;
+            } else if (arg.equals("--stations") && hasValue) {
+                toneCount = Integer.parseInt(args[++i]);
+            } else if (arg.equals("--fixtures") && hasValue) {
+                fixtures = Paths.get(args[++i]);
+            } else if (arg.equals("--faults") && hasValue) {
+                faults = args[++i];
+            } else if (arg.equals("--faulty-every") && hasValue) {
+                faultyEvery = Integer.parseInt(args[++i]);
+            } else if (arg.equals("--slow-mirror-ms") && hasValue) {
+                slowMirrorMs = Long.parseLong(args[++i]);
+            } else if (arg.equals("--seed") && hasValue) {
+                seed = Long.parseLong(args[++i]);
+            } else {
+                System.err.println("Ignoring argument: " + arg);
+            }
+        }
+
+        try (FakeStationServer stationServer = new FakeStationServer(0);
+             FakeRadioBrowserServer slowMirror = new FakeRadioBrowserServer(0);
+             FakeRadioBrowserServer mirror = new FakeRadioBrowserServer(0)) {
+
+            for (int i = 0; i < toneCount; i++) {
+                stationServer.addTone("tone" + (i + 1), 220 + 55 * i);
+            }
+            if (fixtures != null) {
+                System.out.println("Fixtures: " + stationServer.addFixtures(fixtures) + " from " + fixtures);
+            }
+            stationServer.start();
+
+            List<String> mounts = stationServer.getMounts();
+            for (int i = 0; i < mounts.size(); i++) {
+                String mount = mounts.get(i);
+                boolean faulty = faultyEvery > 0 && i % faultyEvery == faultyEvery - 1;
+                String name = "Fake " + mount + (faulty ? " (faulty)" : "");
+                String url = stationServer.url(mount, faulty ? faults : null);
+                String codec = FakeRadioBrowserServer.codecFor(stationServer.getContentType(mount));
+                slowMirror.addStation(name, url, codec, 128);
+                mirror.addStation(name, url, codec, 128);
+            }
+            slowMirror.setResponseDelayMillis(slowMirrorMs);
+            slowMirror.start();
+            mirror.start();
+
+            long searchStart = System.nanoTime();
+            RadioBrowserAPI api = new RadioBrowserAPI(List.of(slowMirror.baseUrl(), mirror.baseUrl()));
+            List<String> urls = new ArrayList<>();
+            for (String entry : api.fetchStations("Fake")) {
+                urls.add(entry.substring(entry.lastIndexOf(" - ") + 3).trim());
+            }
+            System.out.printf("Station search: %d stations in %d ms (%d requests to the slow mirror)%n",
+                    urls.size(), (System.nanoTime() - searchStart) / 1_000_000, slowMirror.getRequestCount());
+            if (urls.size() < 2) {
+                System.err.println("Need at least two stations to switch between");
+                System.exit(1);
+            }
+
+            AudioOutput output = new AudioOutput(new SimulatedOutputLine());
+            UniversalAudioPlayer player = new UniversalAudioPlayer(output);
+            BlockingQueue<Long> firstAudio = new LinkedBlockingQueue<>();
+            AtomicLong errors = new AtomicLong();
+            player.setCallbackExecutor(Runnable::run);
+            player.setOnFirstAudio(firstAudio::offer);
+            player.setOnError(error -> errors.incrementAndGet());
+            player.setCrossfadeMillis(crossfadeMs);
+
+            Path ringFile = null;
+            TimeshiftBuffer ring = null;
+            if (timeshift) {
+                ringFile = Files.createTempFile("radio-soak", ".ring");
+                ring = TimeshiftBuffer.forMinutes(ringFile, 5);
+                player.setTimeshiftBuffer(ring);
+            }
+
+            System.out.printf("Soaking %d stations for %.1f min, dwell %d ms, crossfade %d ms%s%n",
+                    urls.size(), durationMs / 60_000.0, dwellMs, crossfadeMs, timeshift ? ", timeshift on" : "");
+
+            Random random = new Random(seed);
+            List<Long> latencies = new ArrayList<>();
+            long failedStarts = 0;
+            long switches = 0;
+            Snapshot baseline = null;
+            long baselineSwitches = 0;
+            int current = -1;
+
+            long start = System.currentTimeMillis();
+            long nextReport = start + REPORT_INTERVAL_MS;
+
+            while (System.currentTimeMillis() - start < durationMs && switches < maxSwitches) {
+                if (switches == WARMUP_SWITCHES) {
+                    player.stop();
+                    baseline = Snapshot.take();
+                    baselineSwitches = switches;
+                }
+
+                int next = random.nextInt(urls.size() - 1);
+                if (next >= current) next++;
+                current = next;
+
+                long switchedAt = System.currentTimeMillis();
+                firstAudio.clear();
+                player.play(urls.get(current), "Station " + current);
+                switches++;
+
+                Long latency = firstAudio.poll(FIRST_AUDIO_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (latency != null) {
+                    latencies.add(latency);
+                } else {
+                    failedStarts++;
+                }
+
+                long dwell = dwellMs / 2 + (long) (random.nextDouble() * dwellMs);
+                long remaining = switchedAt + dwell - System.currentTimeMillis();
+                if (remaining > 0) Thread.sleep(remaining);
+
+                if (System.currentTimeMillis() >= nextReport) {
+                    nextReport += REPORT_INTERVAL_MS;
+                    long[] sorted = sorted(latencies);
+                    System.out.printf("[%5.1f min] switches %d, first audio p50 %d ms p99 %d ms, failed %d, underruns %d, heap %.1f MB, threads %d%n",
+                            (System.currentTimeMillis() - start) / 60_000.0, switches,
+                            percentile(sorted, 50), percentile(sorted, 99), failedStarts,
+                            output.getUnderruns(), usedHeap() / 1048576.0, Thread.activeCount());
+                }
+            }
+
+            long elapsed = System.currentTimeMillis() - start;
+            player.close();
+            if (ring != null) {
+                ring.close();
+                Files.deleteIfExists(ringFile);
+            }
+            if (baseline == null) baseline = Snapshot.take();
+
+            // Give closed sockets a moment to be noticed by the server side
+            long settleUntil = System.currentTimeMillis() + 3000;
+            while (stationServer.getActiveConnections() > 0 && System.currentTimeMillis() < settleUntil) {
+                Thread.sleep(100);
+            }
+            Snapshot end = Snapshot.take();
+
+            long[] sorted = sorted(latencies);
+            long measured = Math.max(1, switches - baselineSwitches);
+            double growthMb = (end.heapBytes - baseline.heapBytes) / 1048576.0;
+            List<String> leakedThreads = end.threadsSince(baseline);
+            int openConnections = stationServer.getActiveConnections();
+
+            System.out.println();
+            System.out.printf("Soak finished: %d switches in %.1f min%n", switches, elapsed / 60_000.0);
+            System.out.printf("Time to first audio: p50 %d ms, p90 %d ms, p99 %d ms, max %d ms (%d started, %d failed)%n",
+                    percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99),
+                    percentile(sorted, 100), latencies.size(), failedStarts);
+            System.out.printf("Playback errors reported: %d%n", errors.get());
+            System.out.printf("Underruns: %d (%.2f per switch)%n",
+                    output.getUnderruns(), output.getUnderruns() / (double) Math.max(1, switches));
+            System.out.printf("Heap after GC: %.1f MB -> %.1f MB (%+.1f MB, %+.2f MB per 1000 switches)%n",
+                    baseline.heapBytes / 1048576.0, end.heapBytes / 1048576.0, growthMb, growthMb * 1000 / measured);
+            System.out.printf("Threads: %d -> %d, leaked: %s%n",
+                    baseline.threads.size(), end.threads.size(), leakedThreads.isEmpty() ? "none" : leakedThreads);
+            System.out.printf("Station connections still open: %d of %d served%n",
+                    openConnections, stationServer.getTotalConnections());
+
+            if (!leakedThreads.isEmpty() || openConnections > 0) {
+                System.exit(2);
+            }
+        }
+    }
+
+    /**
+     * Heap and live threads at one moment, taken with the player stopped.
+     */
+    private static final class Snapshot {
+        final long heapBytes;
+        final Set<Thread> threads;
+
+        private Snapshot(long heapBytes, Set<Thread> threads) {
+            this.heapBytes = heapBytes;
+            this.threads = threads;
+        }
+
+        static Snapshot take() throws InterruptedException {
+            // Stopped decoders and captures are joined with a timeout; let stragglers exit
+            Thread.sleep(500);
+            return new Snapshot(heapAfterGc(), new HashSet<>(Thread.getAllStackTraces().keySet()));
+        }
+
+        List<String> threadsSince(Snapshot earlier) {
+            List<String> names = new ArrayList<>();
+            for (Thread thread : threads) {
+                if (thread.isAlive() && !earlier.threads.contains(thread)) names.add(thread.getName());
+            }
+            names.sort(null);
+            return names;
+        }
+    }
+
+    private static long heapAfterGc() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return usedHeap();
+    }
+
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long[] sorted(List<Long> values) {
+        long[] array = new long[values.size()];
+        for (int i = 0; i < array.length; i++) array[i] = values.get(i);
+        Arrays.sort(array);
+        return array;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return -1;
+        int index = (int) Math.ceil(p / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
@@ -0,0 +1,196 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StreamResolverTest {
+
+    private static final byte[] ADTS_FRAME = {(byte) 0xFF, (byte) 0xF1, 0x50, (byte) 0x80, 0x02, 0x1F, (byte) 0xFC, 1, 2, 3};
+    private static final byte[] MP3_FRAME = {(byte) 0xFF, (byte) 0xFB, (byte) 0x90, 0x64, 1, 2, 3};
+
+    private final Map<String, String> types = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> bodies = new ConcurrentHashMap<>();
+    private final Map<String, String> extraHeaders = new ConcurrentHashMap<>();
+    private final List<String> requested = new CopyOnWriteArrayList<>();
+    private volatile String icyMetadataHeader;
+    private ServerSocket server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        serve("/aac.m3u8", "application/vnd.apple.mpegurl", playlist("aac.ts"));
+        serve("/aac.ts", "video/mp2t", transportStream(0x0F, ADTS_FRAME));
+        serve("/mp3.m3u8", "application/vnd.apple.mpegurl", playlist("mp3.ts"));
+        serve("/mp3.ts", "video/mp2t", transportStream(0x03, MP3_FRAME));
+        serve("/packed.m3u8", "application/vnd.apple.mpegurl", playlist("packed.aac"));
+        serve("/packed.aac", "audio/aac", ADTS_FRAME);
+        serve("/station.mp3", "audio/mpeg", MP3_FRAME);
+        // Metadata after every 4 audio bytes: a title block, then an empty one
+        byte[] title = Arrays.copyOf("StreamTitle='Artist - Song';".getBytes(StandardCharsets.UTF_8), 32);
+        ByteArrayOutputStream icy = new ByteArrayOutputStream();
+        icy.write(MP3_FRAME, 0, 4);
+        icy.write(2);
+        icy.writeBytes(title);
+        icy.write(MP3_FRAME, 4, 3);
+        serve("/icy.mp3", "audio/mpeg", icy.toByteArray());
+        extraHeaders.put("/icy.mp3", "icy-metaint: 4\r\n");
+        serve("/station.pls", "audio/x-scpls", "[playlist]\nFile1=station.mp3\n".getBytes(StandardCharsets.UTF_8));
+
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread.ofVirtual().name("StreamResolverTest-Accept").start(this::acceptLoop);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void hlsWithAacInTransportStreamIsAudioAac() throws IOException {
+        StreamResolver resolver = new StreamResolver();
+        String url = url("/aac.m3u8");
+
+        try (InputStream in = checkType(resolver.open(url), "audio/aac")) {
+            assertArrayEquals(ADTS_FRAME, Arrays.copyOf(in.readAllBytes(), ADTS_FRAME.length), "demuxed audio");
+        }
+        // The cached endpoint reports the same type
+        checkType(resolver.open(url), "audio/aac").close();
+    }
+
+    @Test
+    void hlsWithMpegAudioIsAudioMpeg() throws IOException {
+        checkType(new StreamResolver().open(url("/mp3.m3u8")), "audio/mpeg").close();
+    }
+
+    @Test
+    void hlsWithPackedAdtsIsAudioAac() throws IOException {
+        checkType(new StreamResolver().open(url("/packed.m3u8")), "audio/aac").close();
+    }
+
+    @Test
+    void prefetchReadsPlaylistButNotAudio() throws IOException {
+        StreamResolver resolver = new StreamResolver();
+        resolver.prefetch(url("/station.pls"));
+        assertEquals(List.of("/station.pls"), requested, "requests while prefetching");
+
+        // Playing it goes straight to the remembered endpoint
+        checkType(resolver.open(url("/station.pls")), "audio/mpeg").close();
+        assertEquals(List.of("/station.pls", "/station.mp3"), requested, "requests after playing");
+    }
+
+    @Test
+    void prefetchSkipsDirectStreams() {
+        new StreamResolver().prefetch(url("/station.mp3"));
+        assertEquals(List.of(), requested, "requests while prefetching");
+    }
+
+    @Test
+    void icyMetadataIsRequestedAndStripped() throws IOException {
+        StreamResolver.ResolvedStream resolved = new StreamResolver().open(url("/icy.mp3"));
+        try (InputStream in = resolved.stream()) {
+            assertArrayEquals(MP3_FRAME, in.readAllBytes(), "audio without metadata");
+            assertEquals("Artist - Song", ((IcyMetadataInputStream) in).getTitle(), "title");
+        }
+        assertEquals("1", icyMetadataHeader, "Icy-MetaData request header");
+    }
+
+    private static InputStream checkType(StreamResolver.ResolvedStream resolved, String expected) {
+        assertEquals(expected, resolved.contentType(), "content type");
+        return resolved.stream();
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getLocalPort() + path;
+    }
+
+    private void serve(String path, String contentType, byte[] body) {
+        types.put(path, contentType);
+        bodies.put(path, body);
+    }
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                Thread.ofVirtual().start(() -> respond(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void respond(Socket socket) {
+        try (socket) {
+            FakeStationServer.Request request = FakeStationServer.Request.read(socket.getInputStream());
+            if (request == null) return;
+            requested.add(request.path);
+            icyMetadataHeader = request.headers.get("icy-metadata");
+            byte[] body = bodies.get(request.path);
+            String head = body == null
+                    ? "HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\nConnection: close\r\n\r\n"
+                    : "HTTP/1.1 200 OK\r\nContent-Type: " + types.get(request.path)
+                            + "\r\nContent-Length: " + body.length + "\r\n"
+                            + extraHeaders.getOrDefault(request.path, "") + "Connection: close\r\n\r\n";
+            OutputStream out = socket.getOutputStream();
+            out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+            if (body != null) out.write(body);
+            out.flush();
+        } catch (IOException ignored) {
+            // Client went away
+        }
+    }
+
+    private static byte[] playlist(String segment) {
+        return ("#EXTM3U\n#EXT-X-TARGETDURATION:2\n#EXT-X-MEDIA-SEQUENCE:0\n#EXTINF:2.0,\n"
+                + segment + "\n#EXT-X-ENDLIST\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A PAT, a PMT naming one audio stream of {@code streamType} on PID 0x101, and one PES packet.
+     */
+    private static byte[] transportStream(int streamType, byte[] audio) {
+        ByteArrayOutputStream ts = new ByteArrayOutputStream();
+        // Pointer field, then the PAT section: program 1 -> PMT on PID 0x100
+        ts.writeBytes(packet(0x000, new byte[] {0, 0x00, (byte) 0xB0, 13, 0, 1, (byte) 0xC1, 0, 0,
+                0, 1, (byte) 0xE1, 0x00, 0, 0, 0, 0}));
+        // PMT section: PCR on 0x101, no program info, one stream
+        ts.writeBytes(packet(0x100, new byte[] {0, 0x02, (byte) 0xB0, 18, 0, 1, (byte) 0xC1, 0, 0,
+                (byte) 0xE1, 0x01, (byte) 0xF0, 0, (byte) streamType, (byte) 0xE1, 0x01, (byte) 0xF0, 0, 0, 0, 0, 0}));
+        // PES header with no optional fields, then the audio
+        byte[] pes = new byte[9 + audio.length];
+        pes[2] = 1;
+        pes[3] = (byte) 0xC0;
+        pes[6] = (byte) 0x80;
+        System.arraycopy(audio, 0, pes, 9, audio.length);
+        ts.writeBytes(packet(0x101, pes));
+        return ts.toByteArray();
+    }
+
+    private static byte[] packet(int pid, byte[] payload) {
+        byte[] packet = new byte[188];
+        Arrays.fill(packet, (byte) 0xFF);
+        packet[0] = 0x47;
+        packet[1] = (byte) (0x40 | (pid >> 8));
+        packet[2] = (byte) pid;
+        packet[3] = 0x10;
+        System.arraycopy(payload, 0, packet, 4, payload.length);
+        return packet;
+    }
+}
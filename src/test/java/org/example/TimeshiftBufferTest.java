@@ -0,0 +1,121 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeshiftBufferTest {
+
+    private Path file;
+    private TimeshiftBuffer buffer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempFile("timeshift", ".ring");
+        buffer = new TimeshiftBuffer(file, 64 * 1024);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        buffer.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void readerWaitingAtLiveEndsWhenStationEnds() throws Exception {
+        buffer.write(new byte[100], 0, 100);
+        TimeshiftBuffer.Reader reader = buffer.openReader(100);
+        CompletableFuture<Integer> read = CompletableFuture.supplyAsync(() -> {
+            try {
+                return reader.read(new byte[10], 0, 10);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        Thread.sleep(100);
+        assertFalse(read.isDone(), "reader should wait for live data");
+        buffer.markEnded();
+        assertEquals(-1, (int) read.get(2, TimeUnit.SECONDS), "read after end");
+    }
+
+    @Test
+    void rewoundReaderPlaysOutRecordingBeforeEnding() throws Exception {
+        byte[] recorded = {1, 2, 3, 4, 5, 6, 7, 8};
+        buffer.write(recorded, 0, recorded.length);
+        buffer.markEnded();
+
+        TimeshiftBuffer.Reader reader = buffer.openReader(0);
+        assertArrayEquals(recorded, reader.readNBytes(100), "recorded bytes");
+        assertEquals(-1, reader.read(), "read after end");
+    }
+
+    @Test
+    void writeMakesRingLiveAgain() throws Exception {
+        buffer.write(new byte[10], 0, 10);
+        buffer.markEnded();
+        buffer.write(new byte[] {42}, 0, 1);
+
+        TimeshiftBuffer.Reader reader = buffer.openReader(10);
+        assertEquals(42, reader.read(), "byte written after the end");
+    }
+
+    @Test
+    void lappedReaderNeverReturnsOverwrittenBytes() throws Exception {
+        Thread writer = new Thread(() -> {
+            byte[] chunk = new byte[4096];
+            for (long pos = 0; pos < 64L << 20; pos += chunk.length) {
+                for (int i = 0; i < chunk.length; i++) {
+                    chunk[i] = RelayServerTest.patternAt(pos + i);
+                }
+                buffer.write(chunk, 0, chunk.length);
+            }
+            buffer.markEnded();
+        });
+        writer.start();
+
+        TimeshiftBuffer.Reader reader = buffer.openReader(0);
+        byte[] dst = new byte[48 * 1024];
+        long checked = 0;
+        int n;
+        while ((n = reader.read(dst, 0, dst.length)) > 0) {
+            long from = reader.position() - n;
+            for (int i = 0; i < n; i++) {
+                if (dst[i] != RelayServerTest.patternAt(from + i)) {
+                    throw new AssertionError("torn read at " + (from + i));
+                }
+            }
+            checked += n;
+        }
+        writer.join();
+        assertTrue(checked > 0, "nothing read");
+    }
+
+    @Test
+    void timeIndexIsPrunedByWhatTheRingHolds() throws Exception {
+        byte[] chunk = new byte[40 * 1024];
+        buffer.write(chunk, 0, chunk.length);
+        Thread.sleep(600);
+        long secondWrite = System.currentTimeMillis();
+        buffer.write(chunk, 0, chunk.length);
+        Thread.sleep(600);
+        buffer.write(chunk, 0, chunk.length);
+
+        // Position 0 has been overwritten; it maps to the oldest time still indexed
+        long oldestTime = buffer.timeAt(0);
+        assertTrue(oldestTime >= secondWrite && oldestTime < System.currentTimeMillis() - 400,
+                "time of overwritten position " + oldestTime);
+        assertEquals(buffer.oldestPosition(), buffer.positionAt(0), "position before the ring");
+    }
+}
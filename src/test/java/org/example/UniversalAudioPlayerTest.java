@@ -0,0 +1,91 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Plays local fake stations through a simulated sound card.
+ */
+class UniversalAudioPlayerTest {
+
+    private final List<String> statuses = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<Long> firstAudio = new LinkedBlockingQueue<>();
+
+    private FakeStationServer stations;
+    private UniversalAudioPlayer player;
+    private Path ringFile;
+    private TimeshiftBuffer timeshift;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stations = new FakeStationServer(0);
+        stations.addTone("tone", 440);
+        stations.addTone("other", 660);
+        stations.start();
+
+        player = new UniversalAudioPlayer(new AudioOutput(new SimulatedOutputLine()));
+        player.setCallbackExecutor(Runnable::run);
+        player.setOnStatusChange(statuses::add);
+        player.setOnFirstAudio(firstAudio::add);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        player.close();
+        stations.close();
+        if (timeshift != null) {
+            timeshift.close();
+            Files.deleteIfExists(ringFile);
+        }
+    }
+
+    @Test
+    void timeshiftPlaybackEndsWhenStationDrops() throws Exception {
+        ringFile = Files.createTempFile("timeshift", ".ring");
+        timeshift = new TimeshiftBuffer(ringFile, 4 << 20);
+        player.setTimeshiftBuffer(timeshift);
+
+        player.play(stations.url("tone", "dropAfter=1"), "Tone");
+
+        waitFor(() -> !player.isPlaying(), 15_000);
+        assertTrue(statuses.contains("Stream ended"), "statuses were " + statuses);
+    }
+
+    @Test
+    void crossfadeCutsOffStalledStation() throws Exception {
+        player.setCrossfadeMillis(2000);
+        // Sends one second of audio, then nothing for longer than the read timeout
+        player.play(stations.url("tone", "burst=0&stallEvery=1&stallMs=30000"), "Stalling");
+        assertNotNull(firstAudio.poll(10, TimeUnit.SECONDS), "first station never played");
+        Thread.sleep(2000);
+
+        player.play(stations.url("other"), "Other");
+
+        Long latency = firstAudio.poll(10, TimeUnit.SECONDS);
+        assertNotNull(latency, "next station never played");
+        assertTrue(latency < 2000, "next station took " + latency + " ms");
+        assertTrue(player.isPlaying(), "stopped after the switch");
+    }
+
+    static void waitFor(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out waiting");
+            Thread.sleep(20);
+        }
+    }
+}